@@ -0,0 +1,123 @@
+package dancinglinks;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Lists.newArrayList;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Solves many instances on an executor. Instances are grouped by {@link Solvable#getStructureKey()} and submitted in
+ * chunks of the same structure, so that a worker builds the matrix of a structure once and reuses it for the whole
+ * chunk. Any executor works, virtual threads included; with one thread per task the reuse is limited to the chunk.
+ *
+ * <p>At most {@code maxChunksInFlight} chunks are submitted and not yet finished; the caller waits for a chunk to
+ * finish before submitting another, so that a large batch does not pile up in the executor queue.
+ */
+@Builder
+public class BatchSolver {
+  @Value
+  public static class Report<SolutionT> {
+    final Duration elapsed;
+    /**
+     * Solving time of every instance, in input order, without the time spent waiting in the queue.
+     */
+    final List<Duration> latencies;
+    /**
+     * Highest number of chunks submitted to the executor and not yet started.
+     */
+    final int maxQueueDepth;
+    /**
+     * Solutions of every instance, in input order.
+     */
+    final List<List<SolutionT>> solutions;
+
+    public double getInstancesPerSecond() {
+      return solutions.size() * 1e9 / Math.max(1, elapsed.toNanos());
+    }
+
+    public Duration getMaxLatency() {
+      return latencies.stream().max(Duration::compareTo).orElse(Duration.ZERO);
+    }
+
+    public Duration getMeanLatency() {
+      return latencies.isEmpty() ? Duration.ZERO : latencies.stream().reduce(Duration.ZERO, Duration::plus).dividedBy(latencies.size());
+    }
+  }
+
+  @Builder.Default
+  private final int chunkSize = 64;
+
+  @Builder.Default
+  @NonNull
+  private final Executor executor = ForkJoinPool.commonPool();
+
+  @Builder.Default
+  private final int maxChunksInFlight = 2 * Runtime.getRuntime().availableProcessors();
+
+  public <SolutionT> Report<SolutionT> solve(final Collection<? extends Solvable<SolutionT>> instances, final Solver.Options options) {
+    checkArgument(chunkSize > 0, "Chunk size %s should be positive", chunkSize);
+    checkArgument(maxChunksInFlight > 0, "Chunks in flight %s should be positive", maxChunksInFlight);
+    List<? extends Solvable<SolutionT>> items = newArrayList(instances);
+    List<List<SolutionT>> solutions = newArrayList(Collections.nCopies(items.size(), null));
+    Duration[] latencies = new Duration[items.size()];
+    AtomicInteger queueDepth = new AtomicInteger();
+    AtomicInteger maxQueueDepth = new AtomicInteger();
+    Semaphore inFlight = new Semaphore(maxChunksInFlight);
+
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    List<CompletableFuture<Void>> futures = newArrayList();
+    Collection<List<Integer>> groups = IntStream.range(0, items.size())
+                                                .boxed()
+                                                .collect(groupingBy(index -> items.get(index).getStructureKey(),
+                                                                    LinkedHashMap::new,
+                                                                    toList()))
+                                                .values();
+    for (List<Integer> group : groups) {
+      for (List<Integer> chunk : Lists.partition(group, chunkSize)) {
+        inFlight.acquireUninterruptibly();
+        maxQueueDepth.accumulateAndGet(queueDepth.incrementAndGet(), Math::max);
+        futures.add(CompletableFuture.runAsync(() -> {
+          queueDepth.decrementAndGet();
+          try {
+            for (int index : chunk) {
+              Stopwatch latency = Stopwatch.createStarted();
+              solutions.set(index, items.get(index).solve(options));
+              latencies[index] = latency.elapsed();
+            }
+          } finally {
+            inFlight.release();
+          }
+        }, executor));
+      }
+    }
+    try {
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+    } catch (CompletionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new IllegalStateException("Unable to solve batch", e.getCause());
+    }
+    return new Report<>(stopwatch.elapsed(), Collections.unmodifiableList(Arrays.asList(latencies)), maxQueueDepth.get(),
+                        Collections.unmodifiableList(solutions));
+  }
+}
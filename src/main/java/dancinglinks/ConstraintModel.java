@@ -0,0 +1,75 @@
+package dancinglinks;
+
+/**
+ * Exact cover formulation of a puzzle with integer ids: primary columns {@code 0..primaryColumnCount - 1}, secondary
+ * columns after them, and one row per option. {@link ModelSolver} builds, caches and solves the matrix, so the
+ * puzzle only has to generate rows and decode solutions from row ids.
+ *
+ * @param <SolutionT> decoded solution
+ */
+public interface ConstraintModel<SolutionT> {
+
+  @FunctionalInterface
+  interface Rows {
+    void add(int rowId, int... columnIds);
+  }
+
+  /**
+   * Tells whether a decoded solution is kept, e.g. when only one solution per symmetry class is wanted.
+   */
+  default boolean accept(final SolutionT solution) {
+    return true;
+  }
+
+  SolutionT decode(int[] rowIds);
+
+  void generateRows(Rows rows);
+
+  default int[] getExcludedRowIds() {
+    return new int[0];
+  }
+
+  default int[] getForcedRowIds() {
+    return new int[0];
+  }
+
+  /**
+   * Returns the family of a column, e.g. rank or file: the {@link #getColumnOrdering() column ordering} applies to
+   * each family on its own.
+   */
+  default int getColumnFamily(final int columnId) {
+    return 0;
+  }
+
+  default Matrix.ColumnOrdering getColumnOrdering() {
+    return Matrix.ColumnOrdering.INPUT;
+  }
+
+  int getPrimaryColumnCount();
+
+  default int getSecondaryColumnCount() {
+    return 0;
+  }
+
+  /**
+   * Key of the rows: models of the same class and key share one matrix per thread, built once. Null disables the
+   * cache.
+   */
+  default Object getTemplateKey() {
+    return null;
+  }
+
+  /**
+   * Tells that the forced rows conflict, so the model has no solution.
+   */
+  default boolean isInfeasible() {
+    return false;
+  }
+
+  /**
+   * Tells that {@link #accept} may reject solutions, in which case the search runs without a limit.
+   */
+  default boolean isFiltered() {
+    return false;
+  }
+}
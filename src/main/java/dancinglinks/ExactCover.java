@@ -0,0 +1,51 @@
+package dancinglinks;
+
+import dancinglinks.Solver.ColumnSelector;
+
+/**
+ * Links searched by the {@link Solver}, whatever their storage. The links keep the search path themselves, one level
+ * per chosen column holding the row currently tried in it, so that the search never handles nodes and an int-indexed
+ * storage needs no boxing.
+ */
+interface ExactCover {
+
+  /**
+   * Undoes the current row, if any, and the column of the last level, then drops that level.
+   */
+  void backtrack();
+
+  /**
+   * Chooses an uncovered primary column, covers it and opens a level on it, with no row yet.
+   */
+  void chooseColumn(ColumnSelector selector);
+
+  /**
+   * Returns a description of the uncovered columns, for logging.
+   */
+  Object describeColumns();
+
+  /**
+   * Returns the current row of the last level, or its column before the first row, for logging.
+   */
+  Object describeLevel();
+
+  /**
+   * Returns the cost of the current row of the last level.
+   */
+  double getCost();
+
+  double getCostLowerBound();
+
+  /**
+   * Returns the solution made of the rows of the search path.
+   */
+  Solution getSolution();
+
+  boolean isEmpty();
+
+  /**
+   * Undoes the current row of the last level, if any, and covers the next row of its column, returning false when
+   * the column has no row left.
+   */
+  boolean nextRow();
+}
@@ -2,32 +2,59 @@ package dancinglinks;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Lists.newArrayListWithCapacity;
 import static com.google.common.collect.Lists.newLinkedList;
 import static com.google.common.collect.Maps.newLinkedHashMap;
 import static java.lang.System.lineSeparator;
 import static java.util.Objects.nonNull;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static java.util.stream.IntStream.range;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
 
 public class Matrix implements Solvable<Solution> {
+  @AllArgsConstructor
+  public enum ColumnOrdering {
+    INPUT(columns -> columns),
+    ORGAN_PIPE(Matrix::organPipe);
+
+    private final Function<List<Node>, List<Node>> ordering;
+
+    public List<Node> order(final List<Node> columns) {
+      return ordering.apply(columns);
+    }
+  }
+
   @Data
   @EqualsAndHashCode(of = "id")
   public static class Node {
-    private Integer columnCount;
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private int columnCount;
     private Node columnHeader;
+    private double cost;
     private Node down;
-    private UUID id = UUID.randomUUID();
+    private final long id = SEQUENCE.incrementAndGet();
+    private int index = -1;
     private String label;
     private Node left;
     private Node right;
@@ -52,7 +79,7 @@ public class Matrix implements Solvable<Solution> {
     public List<Node> getAll(Function<Node, Node> next) {
       List<Node> result = newLinkedList();
       Node node = next.apply(this);
-      while (!node.equals(this)) {
+      while (node != this) {
         result.add(node);
         node = next.apply(node);
       }
@@ -61,7 +88,10 @@ public class Matrix implements Solvable<Solution> {
 
     @Override
     public String toString() {
-      return nonNull(label) ? label : rowHeader + ":" + columnHeader;
+      if (nonNull(label)) {
+        return label;
+      }
+      return isHeader() ? "#" + index : rowHeader + ":" + columnHeader;
     }
 
     void insertDown(final Node value) {
@@ -134,40 +164,88 @@ public class Matrix implements Solvable<Solution> {
   }
 
   private final Map<String, Node> allColumns = newLinkedHashMap();
+  private final List<Node> columnsById = newArrayList();
   private final Map<String, Node> primaryColumns = newLinkedHashMap();
   private final Node primaryRoot;
+  private final Map<String, Node> rows = newLinkedHashMap();
+  private final List<Node> rowsById = newArrayList();
   private final Map<String, Node> secondaryColumns = newLinkedHashMap();
   private final Node secondaryRoot;
 
+  public Matrix(final int primaryColumnCount, final int secondaryColumnCount) {
+    this(primaryColumnCount, secondaryColumnCount, String::valueOf);
+  }
+
+  public Matrix(final int primaryColumnCount, final int secondaryColumnCount, final IntFunction<String> columnNames) {
+    this(range(0, primaryColumnCount).mapToObj(columnNames).collect(toList()),
+         range(primaryColumnCount, primaryColumnCount + secondaryColumnCount).mapToObj(columnNames).collect(toList()));
+  }
+
   public Matrix(final List<String> primaryColumnNames, final List<String> secondaryColumnNames) {
     primaryRoot = new Node("--");
     secondaryRoot = new Node("|");
 
-    primaryColumnNames.forEach(name -> {
-      Node columnHeader = new Node(name);
-      primaryRoot.getLeft().insertRight(columnHeader);
-      primaryColumns.put(name, columnHeader);
-    });
-    secondaryColumnNames.forEach(name -> {
-      Node columnHeader = new Node(name);
-      secondaryRoot.getLeft().insertRight(columnHeader);
-      secondaryColumns.put(name, columnHeader);
-    });
+    primaryColumnNames.forEach(name -> primaryColumns.put(name, addColumn(primaryRoot, name)));
+    secondaryColumnNames.forEach(name -> secondaryColumns.put(name, addColumn(secondaryRoot, name)));
 
     allColumns.putAll(primaryColumns);
     allColumns.putAll(secondaryColumns);
   }
 
+  public int addPrimaryColumn(final String name) {
+    Node columnHeader = addColumn(primaryRoot, name);
+    primaryColumns.put(name, columnHeader);
+    allColumns.put(name, columnHeader);
+    return columnHeader.getIndex();
+  }
+
+  public void addRow(final int rowId, final int... columnIds) {
+    checkArgument(rowId >= 0, "Row id %s is negative", rowId);
+    checkArgument(rowId >= rowsById.size() || rowsById.get(rowId) == null, "Row #%s already exists", rowId);
+    List<Node> columns = getColumns(columnIds);
+
+    Node rowHeader = new Node();
+    rowHeader.setIndex(rowId);
+    while (rowsById.size() <= rowId) {
+      rowsById.add(null);
+    }
+    rowsById.set(rowId, rowHeader);
+    insertRow(rowHeader, 0, columns);
+  }
+
+  public void addRow(final String rowName, final int... columnIds) {
+    checkArgument(!rows.containsKey(rowName), "Row %s already exists", rowName);
+    List<Node> columns = getColumns(columnIds);
+    Node rowHeader = new Node(rowName);
+    rows.put(rowName, rowHeader);
+    insertRow(rowHeader, 0, columns);
+  }
+
   public void addRow(final String rowName, final List<String> columnNames) {
+    addRow(rowName, columnNames, 0);
+  }
+
+  public void addRow(final String rowName, final List<String> columnNames, final double cost) {
+    checkArgument(cost >= 0, "Row %s has negative cost %s", rowName, cost);
+    checkArgument(!rows.containsKey(rowName), "Row %s already exists", rowName);
+    List<Node> columns = columnNames.stream()
+                                    .map(columnName -> {
+                                      Node columnHeader = allColumns.get(columnName);
+                                      checkState(columnHeader != null, "Column %s does not exist", columnName);
+                                      return columnHeader;
+                                    })
+                                    .collect(toList());
+
     Node rowHeader = new Node(rowName);
-    primaryRoot.getUp().insertDown(rowHeader);
-    columnNames.forEach(columnName -> {
-      Node columnHeader = allColumns.get(columnName);
-      checkState(columnHeader != null, "Column %s does not exist", columnName);
-      Node node = new Node();
-      rowHeader.getLeft().insertRight(node);
-      columnHeader.getUp().insertDown(node);
-    });
+    rows.put(rowName, rowHeader);
+    insertRow(rowHeader, cost, columns);
+  }
+
+  public int addSecondaryColumn(final String name) {
+    Node columnHeader = addColumn(secondaryRoot, name);
+    secondaryColumns.put(name, columnHeader);
+    allColumns.put(name, columnHeader);
+    return columnHeader.getIndex();
   }
 
   public final List<Node> getPrimaryColumns() {
@@ -179,13 +257,168 @@ public class Matrix implements Solvable<Solution> {
   }
 
   public boolean isEmpty() {
-    return getUncoveredPrimaryColumns().isEmpty();
+    return primaryRoot.getRight() == primaryRoot;
+  }
+
+  public long count(final Solver.Options options, final int[] forcedRowIds, final int[] excludedRowIds) {
+    return new Solver(this, options).count(getRows(forcedRowIds), getRows(excludedRowIds));
+  }
+
+  public long forEach(final Solver.Options options,
+                      final int[] forcedRowIds,
+                      final int[] excludedRowIds,
+                      final Consumer<Solution> consumer) {
+    return new Solver(this, options).forEach(getRows(forcedRowIds), getRows(excludedRowIds), consumer);
+  }
+
+  public Matrix optimizeLayout(final ColumnOrdering ordering) {
+    return optimizeLayout(ordering, column -> 0);
+  }
+
+  /**
+   * Copies the matrix with its columns reordered inside each family, e.g. ranks, files and diagonals of a board.
+   * Families keep the order of their first column.
+   */
+  public Matrix optimizeLayout(final ColumnOrdering ordering, final Function<Node, ?> family) {
+    List<Node> sourceColumns = orderFamilies(getUncoveredPrimaryColumns(), ordering, family);
+    sourceColumns.addAll(orderFamilies(getUncoveredSecondaryColumns(), ordering, family));
+    checkState(sourceColumns.size() == allColumns.size(), "Can not optimize the layout of a matrix with covered columns");
+
+    Matrix result = new Matrix(getLabels(primaryColumns.values()), getLabels(secondaryColumns.values()));
+    result.columnsById.clear();
+    columnsById.forEach(column -> result.columnsById.add(column == null ? null : result.allColumns.get(column.getLabel())));
+    sourceColumns.forEach(column -> result.columnsById.get(column.getIndex()).setIndex(column.getIndex()));
+    sourceColumns.forEach(column -> {
+      Node columnHeader = result.columnsById.get(column.getIndex());
+      Node root = isPrimary(column) ? result.primaryRoot : result.secondaryRoot;
+      columnHeader.unlinkLR();
+      root.getLeft().insertRight(columnHeader);
+    });
+
+    List<Node> sourceRows = getUncoveredRows();
+    Map<Node, Integer> rowIndexes = new IdentityHashMap<>();
+    List<Node[]> rowNodes = newArrayListWithCapacity(sourceRows.size());
+    for (Node sourceRow : sourceRows) {
+      rowIndexes.put(sourceRow, rowNodes.size());
+      rowNodes.add(new Node[sourceRow.getAll(Node::getRight).size()]);
+    }
+
+    for (Node sourceColumn : sourceColumns) {
+      Node columnHeader = result.columnsById.get(sourceColumn.getIndex());
+      for (Node source : sourceColumn.getAll(Node::getDown)) {
+        Node node = new Node();
+        node.setCost(source.getCost());
+        columnHeader.getUp().insertDown(node);
+        Node[] nodes = rowNodes.get(rowIndexes.get(source.getRowHeader()));
+        nodes[source.getRowHeader().getAll(Node::getRight).indexOf(source)] = node;
+      }
+    }
+
+    for (int i = 0; i < sourceRows.size(); i++) {
+      Node sourceRow = sourceRows.get(i);
+      Node rowHeader = new Node(sourceRow.getLabel());
+      rowHeader.setIndex(sourceRow.getIndex());
+      rowHeader.setCost(sourceRow.getCost());
+      if (nonNull(sourceRow.getLabel())) {
+        result.rows.put(sourceRow.getLabel(), rowHeader);
+      } else {
+        while (result.rowsById.size() <= sourceRow.getIndex()) {
+          result.rowsById.add(null);
+        }
+        result.rowsById.set(sourceRow.getIndex(), rowHeader);
+      }
+      result.primaryRoot.getUp().insertDown(rowHeader);
+      for (Node node : rowNodes.get(i)) {
+        rowHeader.getLeft().insertRight(node);
+      }
+    }
+    return result;
+  }
+
+  public Reduction reduce() {
+    Reduction result = new Reduction();
+    boolean changed = true;
+    while (changed) {
+      changed = forceSingletonColumns(result);
+      if (result.isInfeasible()) {
+        break;
+      }
+      changed |= removeBlockedRows(result);
+    }
+    return result;
+  }
+
+  /**
+   * Publishes the solutions as the subscriber requests them, searching on the executor.
+   */
+  public SolutionPublisher publish(final Solver.Options options, final Executor executor) {
+    return new SolutionPublisher(this, options, new int[0], new int[0], executor);
+  }
+
+  public void removeRow(final int rowId) {
+    Node rowHeader = getRow(rowId);
+    checkState(isUncoveredRow(rowHeader), "Row #%s is in use by a running solve", rowId);
+    removeRow(rowHeader);
+    rowsById.set(rowId, null);
+  }
+
+  public void removeRow(final String rowName) {
+    Node rowHeader = getRow(rowName);
+    checkState(isUncoveredRow(rowHeader), "Row %s is in use by a running solve", rowName);
+    removeRow(rowHeader);
+    rows.remove(rowName);
+  }
+
+  public void retireColumn(final int columnId) {
+    checkArgument(columnId >= 0 && columnId < columnsById.size() && columnsById.get(columnId) != null,
+                  "Column #%s does not exist", columnId);
+    retireColumn(columnsById.get(columnId));
+  }
+
+  public void retireColumn(final String columnName) {
+    Node columnHeader = allColumns.get(columnName);
+    checkArgument(columnHeader != null, "Column %s does not exist", columnName);
+    retireColumn(columnHeader);
   }
 
   public List<Solution> solve(final Solver.Options options) {
     return new Solver(this, options).solve();
   }
 
+  public List<Solution> solve(final Solver.Options options, final Collection<String> forcedRowNames) {
+    List<Node> forcedRows = forcedRowNames.stream()
+                                          .distinct()
+                                          .map(this::getRow)
+                                          .collect(toList());
+    return new Solver(this, options).solve(forcedRows);
+  }
+
+  public List<Solution> solve(final Solver.Options options,
+                              final Collection<String> forcedRowNames,
+                              final Collection<String> excludedRowNames) {
+    List<Node> forcedRows = forcedRowNames.stream()
+                                          .distinct()
+                                          .map(this::getRow)
+                                          .collect(toList());
+    List<Node> excludedRows = excludedRowNames.stream()
+                                              .distinct()
+                                              .map(this::getRow)
+                                              .collect(toList());
+    return new Solver(this, options).solve(forcedRows, excludedRows);
+  }
+
+  public List<Solution> solve(final Solver.Options options, final int[] forcedRowIds, final int[] excludedRowIds) {
+    return new Solver(this, options).solve(getRows(forcedRowIds), getRows(excludedRowIds));
+  }
+
+  public List<Solution> solve(final Solver.Options options, final int... forcedRowIds) {
+    List<Node> forcedRows = IntStream.of(forcedRowIds)
+                                     .distinct()
+                                     .mapToObj(this::getRow)
+                                     .collect(toList());
+    return new Solver(this, options).solve(forcedRows);
+  }
+
   public String toString() {
     StringBuilder result = new StringBuilder();
     String separator = " ";
@@ -210,9 +443,48 @@ public class Matrix implements Solvable<Solution> {
   }
 
   void coverColumn(final Node input) {
-    checkArgument(getUncoveredColumns().contains(input), "Column %s is already covered", input);
+    checkArgument(isUncovered(input), "Column %s is already covered", input);
     input.unlinkLR();
-    input.getAll(Node::getDown).forEach(this::coverRow);
+    for (Node row = input.getDown(); row != input; row = row.getDown()) {
+      coverRow(row);
+    }
+  }
+
+  Reduction excludeRows(final Collection<Node> rowHeaders) {
+    Reduction reduction = new Reduction();
+    rowHeaders.stream().filter(this::isUncoveredRow).forEach(rowHeader -> {
+      removeRow(rowHeader);
+      reduction.addRemovedRow(rowHeader, () -> restoreRow(rowHeader));
+    });
+    return reduction;
+  }
+
+  /**
+   * Sums the cheapest cost share of every uncovered primary column, walking the links so that the search allocates
+   * nothing at each node.
+   */
+  double getCostLowerBound() {
+    double result = 0;
+    for (Node column = primaryRoot.getRight(); column != primaryRoot; column = column.getRight()) {
+      double cheapest = Double.POSITIVE_INFINITY;
+      for (Node node = column.getDown(); node != column; node = node.getDown()) {
+        cheapest = Math.min(cheapest, node.getCost());
+      }
+      result += cheapest;
+    }
+    return result;
+  }
+
+  Node getRow(final int rowId) {
+    Node result = rowId >= 0 && rowId < rowsById.size() ? rowsById.get(rowId) : null;
+    checkArgument(result != null, "Row #%s does not exist", rowId);
+    return result;
+  }
+
+  Node getRow(final String rowName) {
+    Node result = rows.get(rowName);
+    checkArgument(result != null, "Row %s does not exist", rowName);
+    return result;
   }
 
   List<Node> getUncoveredColumns() {
@@ -226,6 +498,16 @@ public class Matrix implements Solvable<Solution> {
     return getUncoveredColumns().stream().flatMap(column -> column.getAll(Node::getDown).stream()).collect(toList());
   }
 
+  Node getSmallestUncoveredPrimaryColumn() {
+    Node result = primaryRoot.getRight();
+    for (Node column = result.getRight(); column != primaryRoot && result.getColumnCount() > 0; column = column.getRight()) {
+      if (column.getColumnCount() < result.getColumnCount()) {
+        result = column;
+      }
+    }
+    return result;
+  }
+
   List<Node> getUncoveredPrimaryColumns() {
     return primaryRoot.getAll(Node::getRight);
   }
@@ -238,17 +520,197 @@ public class Matrix implements Solvable<Solution> {
     return secondaryRoot.getAll(Node::getRight);
   }
 
+  boolean isUncoveredRow(final Node rowHeader) {
+    return rowHeader.getUp().getDown() == rowHeader;
+  }
+
+  void selectRow(final Node rowHeader) {
+    rowHeader.getAll(Node::getRight).forEach(node -> coverColumn(node.getColumnHeader()));
+  }
+
   void uncoverColumn(final Node input) {
-    checkArgument(!getUncoveredColumns().contains(input), "Column %s is not covered", input);
-    input.getAll(Node::getUp).forEach(this::uncoverRow);
+    checkArgument(!isUncovered(input), "Column %s is not covered", input);
+    for (Node row = input.getUp(); row != input; row = row.getUp()) {
+      uncoverRow(row);
+    }
     input.relinkLR();
   }
 
+  void unselectRow(final Node rowHeader) {
+    rowHeader.getAll(Node::getLeft).forEach(node -> uncoverColumn(node.getColumnHeader()));
+  }
+
   private void coverRow(final Node input) {
-    input.getAll(Node::getRight).forEach(Node::unlinkUD);
+    for (Node node = input.getRight(); node != input; node = node.getRight()) {
+      node.unlinkUD();
+    }
+  }
+
+  private static List<Node> orderFamilies(final List<Node> columns,
+                                          final ColumnOrdering ordering,
+                                          final Function<Node, ?> family) {
+    Map<Object, List<Node>> families = newLinkedHashMap();
+    columns.forEach(column -> families.computeIfAbsent(family.apply(column), key -> newArrayList()).add(column));
+    List<Node> result = newArrayListWithCapacity(columns.size());
+    families.values().forEach(members -> result.addAll(ordering.order(members)));
+    return result;
+  }
+
+  private static <T> List<T> organPipe(final List<T> input) {
+    List<T> result = newArrayListWithCapacity(input.size());
+    int middle = (input.size() - 1) / 2;
+    for (int i = 0; i < input.size(); i++) {
+      result.add(input.get(i % 2 == 0 ? middle - i / 2 : middle + (i + 1) / 2));
+    }
+    return result;
+  }
+
+  private Node addColumn(final Node root, final String name) {
+    checkArgument(!primaryColumns.containsKey(name) && !secondaryColumns.containsKey(name), "Column %s already exists", name);
+    Node columnHeader = new Node(name);
+    columnHeader.setIndex(columnsById.size());
+    columnsById.add(columnHeader);
+    root.getLeft().insertRight(columnHeader);
+    return columnHeader;
+  }
+
+  private boolean conflictsWithAllRows(final Set<Node> rowColumns, final Node column) {
+    return column.getAll(Node::getDown)
+                 .stream()
+                 .allMatch(node -> node.getAll(Node::getRight)
+                                       .stream()
+                                       .anyMatch(it -> rowColumns.contains(it.getColumnHeader())));
+  }
+
+  private boolean forceSingletonColumns(final Reduction reduction) {
+    boolean result = false;
+    for (Node column : getUncoveredPrimaryColumns()) {
+      if (!isUncovered(column)) {
+        continue;
+      }
+      if (column.getColumnCount() == 0) {
+        reduction.setInfeasible();
+        return result;
+      }
+      if (column.getColumnCount() == 1) {
+        Node rowHeader = column.getDown().getRowHeader();
+        selectRow(rowHeader);
+        reduction.addForcedRow(rowHeader, () -> unselectRow(rowHeader));
+        result = true;
+      }
+    }
+    return result;
+  }
+
+  private List<Node> getColumns(final int[] columnIds) {
+    List<Node> result = newArrayListWithCapacity(columnIds.length);
+    for (int columnId : columnIds) {
+      checkArgument(columnId >= 0 && columnId < columnsById.size() && columnsById.get(columnId) != null,
+                    "Column #%s does not exist", columnId);
+      result.add(columnsById.get(columnId));
+    }
+    return result;
+  }
+
+  private Set<Node> getColumnHeaders(final Node rowHeader) {
+    return rowHeader.getAll(Node::getRight).stream().map(Node::getColumnHeader).collect(toSet());
+  }
+
+  private List<String> getLabels(final Collection<Node> nodes) {
+    return nodes.stream().map(Node::getLabel).collect(toList());
+  }
+
+  private Node getLastNotMoreExpensive(final Node columnHeader, final double cost) {
+    Node result = columnHeader.getUp();
+    while (!result.equals(columnHeader) && result.getRowHeader().getCost() > cost) {
+      result = result.getUp();
+    }
+    return result;
+  }
+
+  private List<Node> getRows(final int[] rowIds) {
+    return IntStream.of(rowIds)
+                    .distinct()
+                    .mapToObj(this::getRow)
+                    .collect(toList());
+  }
+
+  private void insertRow(final Node rowHeader, final double cost, final List<Node> columns) {
+    rowHeader.setCost(cost);
+    primaryRoot.getUp().insertDown(rowHeader);
+    columns.forEach(columnHeader -> {
+      Node node = new Node();
+      rowHeader.getLeft().insertRight(node);
+      getLastNotMoreExpensive(columnHeader, cost).insertDown(node);
+    });
+    updateCostShares(rowHeader);
+  }
+
+  private boolean isBlocked(final Node rowHeader) {
+    Set<Node> rowColumns = getColumnHeaders(rowHeader);
+    return rowHeader.getAll(Node::getRight)
+                    .stream()
+                    .flatMap(node -> node.getColumnHeader().getAll(Node::getDown).stream())
+                    .flatMap(neighbour -> neighbour.getAll(Node::getRight).stream())
+                    .filter(node -> !node.isHeader())
+                    .map(Node::getColumnHeader)
+                    .filter(column -> !rowColumns.contains(column) && isPrimary(column))
+                    .distinct()
+                    .anyMatch(column -> conflictsWithAllRows(rowColumns, column));
+  }
+
+  private boolean isPrimary(final Node column) {
+    return column.getRowHeader().equals(primaryRoot);
+  }
+
+  private boolean isUncovered(final Node column) {
+    return column.getLeft().getRight() == column;
+  }
+
+  private boolean removeBlockedRows(final Reduction reduction) {
+    boolean result = false;
+    for (Node rowHeader : getUncoveredRows()) {
+      if (isBlocked(rowHeader)) {
+        removeRow(rowHeader);
+        reduction.addRemovedRow(rowHeader, () -> restoreRow(rowHeader));
+        result = true;
+      }
+    }
+    return result;
+  }
+
+  private void removeRow(final Node rowHeader) {
+    rowHeader.unlinkUD();
+    coverRow(rowHeader);
+  }
+
+  private void restoreRow(final Node rowHeader) {
+    uncoverRow(rowHeader);
+    rowHeader.relinkUD();
+  }
+
+  private void retireColumn(final Node columnHeader) {
+    checkState(isUncovered(columnHeader), "Column %s is in use by a running solve", columnHeader);
+    columnHeader.unlinkLR();
+    for (Node node : columnHeader.getAll(Node::getDown)) {
+      node.unlinkLR();
+      updateCostShares(node.getRowHeader());
+    }
+    allColumns.remove(columnHeader.getLabel());
+    primaryColumns.remove(columnHeader.getLabel());
+    secondaryColumns.remove(columnHeader.getLabel());
+    columnsById.set(columnHeader.getIndex(), null);
   }
 
   private void uncoverRow(final Node input) {
-    input.getAll(Node::getLeft).forEach(Node::relinkUD);
+    for (Node node = input.getLeft(); node != input; node = node.getLeft()) {
+      node.relinkUD();
+    }
+  }
+
+  private void updateCostShares(final Node rowHeader) {
+    List<Node> nodes = rowHeader.getAll(Node::getRight);
+    long primaryCount = nodes.stream().map(Node::getColumnHeader).filter(this::isPrimary).count();
+    nodes.forEach(node -> node.setCost(isPrimary(node.getColumnHeader()) ? rowHeader.getCost() / primaryCount : 0));
   }
 }
@@ -4,18 +4,32 @@ import static com.google.common.base.CharMatcher.whitespace;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.Lists.newLinkedList;
 import static java.lang.Integer.parseInt;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.IntStream.range;
 
 import com.google.common.base.Splitter;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
 public class MatrixBuilder {
+  public enum Format {
+    BOOLEAN,
+    CONSTRAINTS,
+    SPARSE
+  }
+
   private static final Splitter SPLITTER_ON_WHITESPACE = Splitter.on(whitespace()).omitEmptyStrings().trimResults();
   private static final String PRIMARY_SECONDARY_COLUMNS_SEPARATOR = "|";
   private static final String NAME_VALUE_ROW_SEPARATOR = ":";
@@ -37,6 +51,22 @@ public class MatrixBuilder {
     return create(lines, lineToRowValuesMapper);
   }
 
+  public static Matrix read(final Path path, final Format format) {
+    try (Reader reader = Files.newBufferedReader(path, UTF_8)) {
+      return read(reader, format);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public static Matrix read(final ReadableByteChannel channel, final Format format) {
+    return read(Channels.newReader(channel, UTF_8.newDecoder(), -1), format);
+  }
+
+  public static Matrix read(final Reader reader, final Format format) {
+    return new MatrixScanner(reader).scan(format);
+  }
+
   public static Matrix withConstraintsLines(final List<String> lines) {
     checkArgument(lines.size() > 1);
     return create(lines, MatrixBuilder::getRowValues);
@@ -0,0 +1,292 @@
+package dancinglinks;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Lists.newArrayList;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+
+import dancinglinks.Matrix.Node;
+import lombok.Getter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Binary matrix format: a header with the counts, the column names, the row ids, row offsets and column indexes, then
+ * optionally the link arrays of {@link MatrixLinks}, the row costs and the row names. Version 1 files have no row
+ * costs.
+ *
+ * <p>{@link #read} maps the integer arrays instead of parsing text, but still builds every heap {@link Node}, so its
+ * time grows with the number of entries. Only {@link OffHeapMatrix#map} uses the link arrays in place, loading in
+ * milliseconds whatever the size.
+ */
+public class MatrixFile {
+  @Getter
+  static class Layout {
+    private final List<String> columnNames;
+    private final int entryCount;
+    private final int flags;
+    private final int primaryColumnCount;
+    private final int rowCount;
+    private final int secondaryColumnCount;
+    private final long tableOffset;
+
+    private Layout(final DataInputStream input) throws IOException {
+      checkArgument(input.readInt() == MAGIC, "Not a matrix file");
+      int version = input.readInt();
+      checkArgument(version >= 1 && version <= VERSION, "Unsupported matrix file version %s", version);
+      flags = input.readInt();
+      primaryColumnCount = input.readInt();
+      secondaryColumnCount = input.readInt();
+      rowCount = input.readInt();
+      entryCount = input.readInt();
+
+      long offset = HEADER_SIZE;
+      columnNames = newArrayList();
+      for (int i = 0; i < getColumnCount(); i++) {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        columnNames.add(new String(bytes, UTF_8));
+        offset += Integer.BYTES + bytes.length;
+      }
+      tableOffset = offset;
+    }
+
+    static Layout read(final Path path) throws IOException {
+      try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+        return new Layout(input);
+      }
+    }
+
+    int getColumnCount() {
+      return primaryColumnCount + secondaryColumnCount;
+    }
+
+    long getColumnIndexesOffset() {
+      return getRowOffsetsOffset() + (long) Integer.BYTES * (rowCount + 1);
+    }
+
+    long getLinksOffset() {
+      return getColumnIndexesOffset() + (long) Integer.BYTES * entryCount;
+    }
+
+    int getNodeCount() {
+      return 1 + getColumnCount() + entryCount;
+    }
+
+    long getRowIdsOffset() {
+      return tableOffset;
+    }
+
+    long getRowCostsOffset() {
+      long linksSize = (long) Integer.BYTES * (3L * getNodeCount() + 2L * (getColumnCount() + 1) + entryCount);
+      return getLinksOffset() + (hasLinks() ? linksSize : 0);
+    }
+
+    long getRowNamesOffset() {
+      return getRowCostsOffset() + (hasRowCosts() ? (long) Double.BYTES * rowCount : 0);
+    }
+
+    long getRowOffsetsOffset() {
+      return getRowIdsOffset() + (long) Integer.BYTES * rowCount;
+    }
+
+    boolean hasLinks() {
+      return (flags & FLAG_LINKS) != 0;
+    }
+
+    boolean hasRowCosts() {
+      return (flags & FLAG_ROW_COSTS) != 0;
+    }
+
+    boolean hasRowNames() {
+      return (flags & FLAG_ROW_NAMES) != 0;
+    }
+
+    MatrixLinks mapLinks(final FileChannel channel, final MapMode mode) throws IOException {
+      checkArgument(hasLinks(), "Matrix file has no link arrays");
+      long offset = getLinksOffset();
+      IntBuffer up = mapInts(channel, mode, offset, getNodeCount());
+      IntBuffer down = mapInts(channel, mode, offset += (long) Integer.BYTES * getNodeCount(), getNodeCount());
+      IntBuffer top = mapInts(channel, mode, offset += (long) Integer.BYTES * getNodeCount(), getNodeCount());
+      IntBuffer left = mapInts(channel, mode, offset += (long) Integer.BYTES * getNodeCount(), getColumnCount() + 1);
+      IntBuffer right = mapInts(channel, mode, offset += (long) Integer.BYTES * (getColumnCount() + 1), getColumnCount() + 1);
+      IntBuffer row = mapInts(channel, mode, offset + (long) Integer.BYTES * (getColumnCount() + 1), entryCount);
+      return new MatrixLinks(up, down, top, left, right, row);
+    }
+
+    DoubleBuffer mapRowCosts(final FileChannel channel) throws IOException {
+      if (!hasRowCosts()) {
+        return DoubleBuffer.allocate(rowCount);
+      }
+      return channel.map(MapMode.READ_ONLY, getRowCostsOffset(), (long) Double.BYTES * rowCount).asDoubleBuffer();
+    }
+
+    List<String> readRowNames(final FileChannel channel) throws IOException {
+      List<String> result = newArrayList();
+      if (!hasRowNames()) {
+        return result;
+      }
+      InputStream stream = Channels.newInputStream(channel.position(getRowNamesOffset()));
+      DataInputStream input = new DataInputStream(new BufferedInputStream(stream));
+      for (int i = 0; i < rowCount; i++) {
+        int length = input.readInt();
+        if (length < 0) {
+          result.add(null);
+        } else {
+          byte[] bytes = new byte[length];
+          input.readFully(bytes);
+          result.add(new String(bytes, UTF_8));
+        }
+      }
+      return result;
+    }
+  }
+
+  private static final int FLAG_LINKS = 1;
+  private static final int FLAG_ROW_COSTS = 4;
+  private static final int FLAG_ROW_NAMES = 2;
+  private static final int HEADER_SIZE = 7 * Integer.BYTES;
+  private static final int MAGIC = 0x444c5831;
+  private static final int VERSION = 2;
+
+  public static Matrix read(final Path path) {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      Layout layout = Layout.read(path);
+      List<String> columnNames = layout.getColumnNames();
+      Matrix result = new Matrix(columnNames.subList(0, layout.getPrimaryColumnCount()),
+                                 columnNames.subList(layout.getPrimaryColumnCount(), layout.getColumnCount()));
+
+      IntBuffer rowIds = mapInts(channel, MapMode.READ_ONLY, layout.getRowIdsOffset(), layout.getRowCount());
+      IntBuffer rowOffsets = mapInts(channel, MapMode.READ_ONLY, layout.getRowOffsetsOffset(), layout.getRowCount() + 1);
+      IntBuffer columnIndexes = mapInts(channel, MapMode.READ_ONLY, layout.getColumnIndexesOffset(), layout.getEntryCount());
+      DoubleBuffer rowCosts = layout.mapRowCosts(channel);
+      List<String> rowNames = layout.readRowNames(channel);
+
+      for (int row = 0; row < layout.getRowCount(); row++) {
+        int[] columnIds = new int[rowOffsets.get(row + 1) - rowOffsets.get(row)];
+        columnIndexes.position(rowOffsets.get(row));
+        columnIndexes.get(columnIds);
+        String rowName = rowNames.isEmpty() ? null : rowNames.get(row);
+        if (rowName == null) {
+          result.addRow(rowIds.get(row), columnIds);
+        } else if (rowCosts.get(row) == 0) {
+          result.addRow(rowName, columnIds);
+        } else {
+          result.addRow(rowName, IntStream.of(columnIds).mapToObj(columnNames::get).collect(toList()), rowCosts.get(row));
+        }
+      }
+      return result;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public static void write(final Matrix matrix, final Path path) {
+    write(matrix, path, false);
+  }
+
+  public static void write(final Matrix matrix, final Path path, final boolean withLinks) {
+    List<Node> columns = matrix.getPrimaryColumns();
+    int primaryColumnCount = columns.size();
+    columns.addAll(matrix.getSecondaryColumns());
+    List<String> columnNames = columns.stream().map(Node::getLabel).collect(toList());
+    Map<Node, Integer> columnIndexesByHeader = new IdentityHashMap<>();
+    columns.forEach(column -> columnIndexesByHeader.put(column, columnIndexesByHeader.size()));
+
+    List<Node> rows = matrix.getUncoveredRows();
+    int[] rowOffsets = new int[rows.size() + 1];
+    for (int i = 0; i < rows.size(); i++) {
+      rowOffsets[i + 1] = rowOffsets[i] + rows.get(i).getAll(Node::getRight).size();
+    }
+    int[] columnIndexes = rows.stream()
+                              .flatMap(row -> row.getAll(Node::getRight).stream())
+                              .mapToInt(node -> columnIndexesByHeader.get(node.getColumnHeader()))
+                              .toArray();
+    boolean withRowNames = rows.stream().map(Node::getLabel).anyMatch(Objects::nonNull);
+    boolean withRowCosts = rows.stream().anyMatch(row -> row.getCost() != 0);
+
+    try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+      output.writeInt((withLinks ? FLAG_LINKS : 0) | (withRowNames ? FLAG_ROW_NAMES : 0) | (withRowCosts ? FLAG_ROW_COSTS : 0));
+      output.writeInt(primaryColumnCount);
+      output.writeInt(columnNames.size() - primaryColumnCount);
+      output.writeInt(rows.size());
+      output.writeInt(columnIndexes.length);
+      for (String name : columnNames) {
+        writeString(output, name);
+      }
+
+      for (Node row : rows) {
+        output.writeInt(row.getIndex());
+      }
+      writeInts(output, IntBuffer.wrap(rowOffsets));
+      writeInts(output, IntBuffer.wrap(columnIndexes));
+
+      if (withLinks) {
+        MatrixLinks links = MatrixLinks.compute(primaryColumnCount, columnNames.size(),
+                                                IntBuffer.wrap(rowOffsets), IntBuffer.wrap(columnIndexes),
+                                                IntBuffer::allocate);
+        writeInts(output, links.up);
+        writeInts(output, links.down);
+        writeInts(output, links.top);
+        writeInts(output, links.left);
+        writeInts(output, links.right);
+        writeInts(output, links.row);
+      }
+
+      if (withRowCosts) {
+        for (Node row : rows) {
+          output.writeDouble(row.getCost());
+        }
+      }
+
+      if (withRowNames) {
+        for (Node row : rows) {
+          writeString(output, row.getLabel());
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  static IntBuffer mapInts(final FileChannel channel, final MapMode mode, final long offset, final int count) throws IOException {
+    return channel.map(mode, offset, (long) Integer.BYTES * count).asIntBuffer();
+  }
+
+  private static void writeInts(final DataOutputStream output, final IntBuffer values) throws IOException {
+    for (int i = 0; i < values.limit(); i++) {
+      output.writeInt(values.get(i));
+    }
+  }
+
+  private static void writeString(final DataOutputStream output, final String value) throws IOException {
+    if (value == null) {
+      output.writeInt(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+}
@@ -0,0 +1,64 @@
+package dancinglinks;
+
+import java.nio.IntBuffer;
+import java.util.function.IntFunction;
+
+class MatrixLinks {
+  final IntBuffer down;
+  final IntBuffer left;
+  final IntBuffer right;
+  final IntBuffer row;
+  final IntBuffer top;
+  final IntBuffer up;
+
+  MatrixLinks(final IntBuffer up, final IntBuffer down, final IntBuffer top,
+              final IntBuffer left, final IntBuffer right, final IntBuffer row) {
+    this.up = up;
+    this.down = down;
+    this.top = top;
+    this.left = left;
+    this.right = right;
+    this.row = row;
+  }
+
+  static MatrixLinks compute(final int primaryColumnCount,
+                             final int columnCount,
+                             final IntBuffer rowOffsets,
+                             final IntBuffer columnIndexes,
+                             final IntFunction<IntBuffer> allocator) {
+    int rowCount = rowOffsets.limit() - 1;
+    int entryCount = columnIndexes.limit();
+    int nodeCount = 1 + columnCount + entryCount;
+    MatrixLinks result = new MatrixLinks(allocator.apply(nodeCount),
+                                         allocator.apply(nodeCount),
+                                         allocator.apply(nodeCount),
+                                         allocator.apply(columnCount + 1),
+                                         allocator.apply(columnCount + 1),
+                                         allocator.apply(entryCount));
+
+    for (int header = 0; header <= columnCount; header++) {
+      result.up.put(header, header);
+      result.down.put(header, header);
+      result.top.put(header, 0);
+      boolean inRootList = header <= primaryColumnCount;
+      result.left.put(header, inRootList ? (header == 0 ? primaryColumnCount : header - 1) : header);
+      result.right.put(header, inRootList ? (header == primaryColumnCount ? 0 : header + 1) : header);
+    }
+
+    for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+      for (int entry = rowOffsets.get(rowIndex); entry < rowOffsets.get(rowIndex + 1); entry++) {
+        int node = columnCount + 1 + entry;
+        int column = columnIndexes.get(entry) + 1;
+        int last = result.up.get(column);
+        result.up.put(node, last);
+        result.down.put(node, column);
+        result.down.put(last, node);
+        result.up.put(column, node);
+        result.top.put(node, column);
+        result.top.put(column, result.top.get(column) + 1);
+        result.row.put(entry, rowIndex);
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,229 @@
+package dancinglinks;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Iterables.concat;
+import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Arrays.copyOf;
+
+import dancinglinks.MatrixBuilder.Format;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+
+class MatrixScanner {
+  private static class ColumnTable {
+    private final String[] names;
+    private final int[] slots;
+
+    ColumnTable(final List<String> names) {
+      this.names = names.toArray(new String[0]);
+      slots = new int[Integer.highestOneBit(Math.max(1, names.size())) << 2];
+      Arrays.fill(slots, -1);
+      for (int i = 0; i < this.names.length; i++) {
+        String name = this.names[i];
+        int slot = hash(name.toCharArray(), 0, name.length()) & (slots.length - 1);
+        while (slots[slot] >= 0) {
+          slot = (slot + 1) & (slots.length - 1);
+        }
+        slots[slot] = i;
+      }
+    }
+
+    int indexOf(final char[] chars, final int from, final int to) {
+      int slot = hash(chars, from, to) & (slots.length - 1);
+      while (slots[slot] >= 0) {
+        if (matches(names[slots[slot]], chars, from, to)) {
+          return slots[slot];
+        }
+        slot = (slot + 1) & (slots.length - 1);
+      }
+      return -1;
+    }
+
+    private static int hash(final char[] chars, final int from, final int to) {
+      int result = 0;
+      for (int i = from; i < to; i++) {
+        result = 31 * result + chars[i];
+      }
+      return result ^ (result >>> 16);
+    }
+
+    private static boolean matches(final String name, final char[] chars, final int from, final int to) {
+      if (name.length() != to - from) {
+        return false;
+      }
+      for (int i = from; i < to; i++) {
+        if (name.charAt(i - from) != chars[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final char NAME_VALUE_ROW_SEPARATOR = ':';
+  private static final char PRIMARY_SECONDARY_COLUMNS_SEPARATOR = '|';
+
+  private final char[] buffer = new char[BUFFER_SIZE];
+  private int bufferLimit;
+  private int bufferPosition;
+  private int[] columnIds = new int[16];
+  private char[] line = new char[256];
+  private int lineLength;
+  private final Reader reader;
+
+  MatrixScanner(final Reader reader) {
+    this.reader = reader;
+  }
+
+  Matrix scan(final Format format) {
+    checkArgument(readLine(), "Missing header line");
+    List<String> primaryColumnNames = newArrayList();
+    List<String> secondaryColumnNames = newArrayList();
+    List<String> current = primaryColumnNames;
+    int from = 0;
+    while (from < lineLength) {
+      if (line[from] == PRIMARY_SECONDARY_COLUMNS_SEPARATOR) {
+        current = secondaryColumnNames;
+        from++;
+        continue;
+      }
+      from = skipWhitespace(from);
+      int to = tokenEnd(from);
+      if (to > from) {
+        current.add(new String(line, from, to - from));
+      }
+      from = to;
+    }
+
+    Matrix result = new Matrix(primaryColumnNames, secondaryColumnNames);
+    List<String> allColumnNames = newArrayList(concat(primaryColumnNames, secondaryColumnNames));
+    ColumnTable columns = new ColumnTable(allColumnNames);
+    int columnCount = allColumnNames.size();
+
+    int rowIndex = 0;
+    while (readLine()) {
+      rowIndex++;
+      int separator = indexOf(NAME_VALUE_ROW_SEPARATOR);
+      from = separator < 0 ? 0 : separator + 1;
+      if (separator < 0 && skipWhitespace(0) == lineLength) {
+        continue;
+      }
+      String rowName = separator < 0 ? "R" + rowIndex : new String(line, 0, separator).trim();
+
+      int count = 0;
+      int position = 0;
+      from = skipWhitespace(from);
+      while (from < lineLength) {
+        int to = tokenEnd(from);
+        checkArgument(to > from, "Row %s has an unexpected %s", rowName, line[from]);
+        switch (format) {
+          case CONSTRAINTS:
+            int columnId = columns.indexOf(line, from, to);
+            checkState(columnId >= 0, "Column %s does not exist", new String(line, from, to - from));
+            count = addColumnId(count, columnId);
+            break;
+          case BOOLEAN:
+            checkArgument(position < columnCount, "Row %s is expected to have size equals to %s", rowName, columnCount);
+            if (parseInt(from, to) > 0) {
+              count = addColumnId(count, position);
+            }
+            break;
+          case SPARSE:
+            count = addColumnId(count, parseInt(from, to));
+            break;
+          default:
+            throw new IllegalStateException("Unsupported format " + format);
+        }
+        position++;
+        from = skipWhitespace(to);
+      }
+      checkArgument(format != Format.BOOLEAN || position == columnCount,
+                    "Row %s is expected to have size equals to %s but it is %s", rowName, columnCount, position);
+      result.addRow(rowName, copyOf(columnIds, count));
+    }
+    return result;
+  }
+
+  private int addColumnId(final int count, final int columnId) {
+    if (count == columnIds.length) {
+      columnIds = copyOf(columnIds, count * 2);
+    }
+    columnIds[count] = columnId;
+    return count + 1;
+  }
+
+  private boolean fillBuffer() {
+    try {
+      bufferLimit = reader.read(buffer);
+      bufferPosition = 0;
+      return bufferLimit > 0;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private int indexOf(final char value) {
+    for (int i = 0; i < lineLength; i++) {
+      if (line[i] == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private int parseInt(final int from, final int to) {
+    boolean negative = line[from] == '-';
+    checkArgument(to > (negative ? from + 1 : from), "Invalid number %s", new String(line, from, to - from));
+    int result = 0;
+    for (int i = negative ? from + 1 : from; i < to; i++) {
+      char c = line[i];
+      checkArgument(c >= '0' && c <= '9', "Invalid number %s", new String(line, from, to - from));
+      checkArgument(result <= (Integer.MAX_VALUE - (c - '0')) / 10, "Number %s is too large",
+                    new String(line, from, to - from));
+      result = result * 10 + (c - '0');
+    }
+    return negative ? -result : result;
+  }
+
+  private boolean readLine() {
+    lineLength = 0;
+    boolean read = false;
+    while (bufferPosition < bufferLimit || fillBuffer()) {
+      read = true;
+      char c = buffer[bufferPosition++];
+      if (c == '\n') {
+        return true;
+      }
+      if (c == '\r') {
+        continue;
+      }
+      if (lineLength == line.length) {
+        line = copyOf(line, lineLength * 2);
+      }
+      line[lineLength++] = c;
+    }
+    return read;
+  }
+
+  private int skipWhitespace(final int from) {
+    int result = from;
+    while (result < lineLength && Character.isWhitespace(line[result])) {
+      result++;
+    }
+    return result;
+  }
+
+  private int tokenEnd(final int from) {
+    int result = from;
+    while (result < lineLength && !Character.isWhitespace(line[result]) && line[result] != PRIMARY_SECONDARY_COLUMNS_SEPARATOR) {
+      result++;
+    }
+    return result;
+  }
+}
@@ -0,0 +1,196 @@
+package dancinglinks;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Lists.reverse;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Ints;
+import dancinglinks.Matrix.Node;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Shared runtime of the {@link ConstraintModel}s: builds their matrix once per thread and template key, applies their
+ * forced and excluded rows, decodes and filters the solutions.
+ *
+ * <p>The matrices are cached per thread, so reuse only happens on long-lived threads such as a fixed pool; a virtual
+ * thread per task builds its own matrix every time. A solve takes its matrix out of the cache while it runs, so that
+ * a consumer solving another model of the same key on that thread gets a fresh matrix.
+ */
+public final class ModelSolver {
+  private static final ThreadLocal<Map<Object, Matrix>> TEMPLATES = ThreadLocal.withInitial(Maps::newHashMap);
+
+  private ModelSolver() {
+  }
+
+  public static <T> long count(final ConstraintModel<T> model, final Solver.Options options) {
+    if (model.isInfeasible()) {
+      return 0;
+    }
+    if (model.isFiltered() || options.isCheapest()) {
+      return forEach(model, options, solution -> { });
+    }
+    return withMatrix(model, matrix -> matrix.count(options, model.getForcedRowIds(), model.getExcludedRowIds()));
+  }
+
+  /**
+   * Hands every kept solution to the consumer as soon as it is found, up to the limit, returning their count.
+   */
+  public static <T> long forEach(final ConstraintModel<T> model, final Solver.Options options, final Consumer<T> consumer) {
+    return forEach(model, options, model.getForcedRowIds(), consumer);
+  }
+
+  public static <T> List<T> solve(final ConstraintModel<T> model, final Solver.Options options) {
+    List<T> result = newArrayList();
+    forEach(model, options, result::add);
+    return result;
+  }
+
+  /**
+   * Splits the search on the rows of the column the solver would choose first, solving each branch on the executor
+   * with the matrix of its worker thread. Solutions come in the order a sequential solve finds them.
+   */
+  public static <T> List<T> solveParallel(final ConstraintModel<T> model, final Solver.Options options, final Executor executor) {
+    checkArgument(!options.isCheapest(), "Cheapest solutions can not be split across branches");
+    if (model.isInfeasible()) {
+      return newArrayList();
+    }
+    int[] branches = getBranchRowIds(model);
+    if (branches.length == 0) {
+      return solve(model, options);
+    }
+    List<CompletableFuture<List<T>>> futures =
+      IntStream.of(branches)
+               .mapToObj(rowId -> CompletableFuture.supplyAsync(() -> {
+                 List<T> result = newArrayList();
+                 forEach(model, options, Ints.concat(model.getForcedRowIds(), new int[] {rowId}), result::add);
+                 return result;
+               }, executor))
+               .collect(toList());
+    return futures.stream()
+                  .flatMap(future -> future.join().stream())
+                  .limit(options.getLimit().orElse(Integer.MAX_VALUE))
+                  .collect(toList());
+  }
+
+  static Matrix getMatrix(final ConstraintModel<?> model) {
+    Matrix result = borrowMatrix(model);
+    returnMatrix(model, result);
+    return result;
+  }
+
+  /**
+   * Takes the cached matrix of the model out of the cache, building one when there is none, so that no other solve
+   * on this thread uses it until {@link #returnMatrix}.
+   */
+  private static Matrix borrowMatrix(final ConstraintModel<?> model) {
+    Object key = model.getTemplateKey();
+    Matrix result = key == null ? null : TEMPLATES.get().remove(asList(model.getClass(), key));
+    return result == null ? createMatrix(model) : result;
+  }
+
+  private static Matrix createMatrix(final ConstraintModel<?> model) {
+    Matrix result = new Matrix(model.getPrimaryColumnCount(), model.getSecondaryColumnCount());
+    model.generateRows(result::addRow);
+    if (model.getColumnOrdering() == Matrix.ColumnOrdering.INPUT) {
+      return result;
+    }
+    return result.optimizeLayout(model.getColumnOrdering(), column -> model.getColumnFamily(column.getIndex()));
+  }
+
+  private static <T> long forEach(final ConstraintModel<T> model,
+                                  final Solver.Options options,
+                                  final int[] forcedRowIds,
+                                  final Consumer<T> consumer) {
+    if (model.isInfeasible()) {
+      return 0;
+    }
+    long limit = options.getLimit().orElse(Integer.MAX_VALUE);
+    long[] count = {0};
+    Consumer<Solution> handler = solution -> {
+      if (count[0] < limit) {
+        T decoded = model.decode(solution.getRowIds());
+        if (model.accept(decoded)) {
+          count[0]++;
+          consumer.accept(decoded);
+        }
+      }
+    };
+
+    Solver.Options searchOptions = !model.isFiltered() ? options
+                                                       : options.toBuilder()
+                                                                .limit(null)
+                                                                .cancellation(() -> count[0] >= limit || options.isCancelled())
+                                                                .build();
+    withMatrix(model, matrix -> {
+      if (options.isCheapest()) {
+        matrix.solve(searchOptions, forcedRowIds, model.getExcludedRowIds()).forEach(handler);
+      } else {
+        matrix.forEach(searchOptions, forcedRowIds, model.getExcludedRowIds(), handler);
+      }
+      return null;
+    });
+    return count[0];
+  }
+
+  /**
+   * Returns the rows of the smallest column left once the forced and excluded rows are applied, none when the forced
+   * rows conflict or already cover every primary column.
+   */
+  private static int[] getBranchRowIds(final ConstraintModel<?> model) {
+    return withMatrix(model, matrix -> getBranchRowIds(model, matrix));
+  }
+
+  private static int[] getBranchRowIds(final ConstraintModel<?> model, final Matrix matrix) {
+    Reduction exclusion = matrix.excludeRows(IntStream.of(model.getExcludedRowIds()).mapToObj(matrix::getRow).collect(toList()));
+    List<Node> selectedRows = newArrayList();
+    boolean conflict = false;
+    for (int rowId : model.getForcedRowIds()) {
+      Node rowHeader = matrix.getRow(rowId);
+      conflict = !matrix.isUncoveredRow(rowHeader);
+      if (conflict) {
+        break;
+      }
+      matrix.selectRow(rowHeader);
+      selectedRows.add(rowHeader);
+    }
+
+    List<Integer> result = newArrayList();
+    if (!conflict && !matrix.isEmpty()) {
+      Node column = matrix.getSmallestUncoveredPrimaryColumn();
+      for (Node row = column.getDown(); row != column; row = row.getDown()) {
+        result.add(row.getRowHeader().getIndex());
+      }
+    }
+    reverse(selectedRows).forEach(matrix::unselectRow);
+    exclusion.undo();
+    return Ints.toArray(result);
+  }
+
+  private static void returnMatrix(final ConstraintModel<?> model, final Matrix matrix) {
+    Object key = model.getTemplateKey();
+    if (key != null) {
+      TEMPLATES.get().putIfAbsent(asList(model.getClass(), key), matrix);
+    }
+  }
+
+  /**
+   * Runs the action on a matrix of the model borrowed from the cache. The matrix goes back to the cache only when
+   * the action completes, since a failed search may leave it covered.
+   */
+  private static <R> R withMatrix(final ConstraintModel<?> model, final Function<Matrix, R> action) {
+    Matrix matrix = borrowMatrix(model);
+    R result = action.apply(matrix);
+    returnMatrix(model, matrix);
+    return result;
+  }
+}
@@ -5,10 +5,10 @@ import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Lists.newLinkedList;
 import static com.google.common.collect.Sets.difference;
 import static com.google.common.collect.Sets.newHashSet;
-import static java.lang.Integer.parseInt;
 import static java.lang.String.format;
 import static java.lang.System.lineSeparator;
 import static java.util.Collections.emptySet;
+import static java.util.Comparator.comparing;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
@@ -17,15 +17,23 @@ import static java.util.stream.Stream.concat;
 
 import com.google.common.collect.ComparisonChain;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
 import com.google.common.collect.Range;
+import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Value;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.OptionalInt;
 import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
 import java.util.function.Function;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 @EqualsAndHashCode(of = {"size", "existingValues"})
@@ -83,6 +91,38 @@ public class NQueen implements Solvable<NQueen> {
 
   }
 
+  @AllArgsConstructor
+  enum Symmetry {
+    IDENTITY((size, cell) -> cell),
+    ROTATE_90((size, cell) -> new Cell(cell.getColumn(), size + 1 - cell.getRow())),
+    ROTATE_180((size, cell) -> new Cell(size + 1 - cell.getRow(), size + 1 - cell.getColumn())),
+    ROTATE_270((size, cell) -> new Cell(size + 1 - cell.getColumn(), cell.getRow())),
+    FLIP_COLUMNS((size, cell) -> new Cell(cell.getRow(), size + 1 - cell.getColumn())),
+    FLIP_ROWS((size, cell) -> new Cell(size + 1 - cell.getRow(), cell.getColumn())),
+    TRANSPOSE((size, cell) -> new Cell(cell.getColumn(), cell.getRow())),
+    ANTI_TRANSPOSE((size, cell) -> new Cell(size + 1 - cell.getColumn(), size + 1 - cell.getRow()));
+
+    private final BiFunction<Integer, Cell, Cell> transform;
+
+    Set<Cell> apply(final int size, final Set<Cell> cells) {
+      return cells.stream().map(cell -> transform.apply(size, cell)).collect(toSet());
+    }
+  }
+
+  /**
+   * Solutions of a board up to the symmetries that leave its preplaced queens in place, together with the total
+   * number of solutions those classes stand for.
+   */
+  @Value
+  public static class SymmetryReport {
+    final long totalSolutionCount;
+    final List<NQueen> uniqueSolutions;
+
+    public long getUniqueSolutionCount() {
+      return uniqueSolutions.size();
+    }
+  }
+
   public static class ConstraintsGenerator {
     private static final String PRIMARY_SECONDARY_SEPARATOR = " | ";
     private final Set<Cell> allCells;
@@ -175,12 +215,6 @@ public class NQueen implements Solvable<NQueen> {
         validIndexRange.contains(input.getColumn());
     }
 
-    private Cell parseRowName(final String input) {
-      String[] rowColumn = input.split("\\.");
-      return new Cell(parseInt(rowColumn[0]),
-                      parseInt(rowColumn[1]));
-    }
-
     private List<Cell> reachableFrom(final Cell input) {
       List<Cell> result = newLinkedList();
       for (Function<Cell, Cell> direction : Lists.<Function<Cell, Cell>>newArrayList(Cell::up,
@@ -208,6 +242,79 @@ public class NQueen implements Solvable<NQueen> {
     }
   }
 
+  private class Model implements ConstraintModel<NQueen> {
+    private final Matrix.ColumnOrdering columnOrdering;
+    private final int diagonalCount = 2 * size - 1;
+    private final int[] excludedRowIds;
+    private final int[] forcedRowIds = getQueenRowIds();
+
+    Model(final Matrix.ColumnOrdering columnOrdering, final int[] excludedRowIds) {
+      this.columnOrdering = columnOrdering;
+      this.excludedRowIds = excludedRowIds;
+    }
+
+    @Override
+    public NQueen decode(final int[] rowIds) {
+      return fromRowIds(rowIds);
+    }
+
+    @Override
+    public void generateRows(final Rows rows) {
+      for (int row = 0; row < size; row++) {
+        for (int column = 0; column < size; column++) {
+          rows.add(row * size + column,
+                   row,
+                   size + column,
+                   2 * size + row + column,
+                   2 * size + diagonalCount + row - column + size - 1);
+        }
+      }
+    }
+
+    /**
+     * Ranks, files, diagonals then anti-diagonals.
+     */
+    @Override
+    public int getColumnFamily(final int columnId) {
+      return columnId < 2 * size ? columnId / size : 2 + (columnId - 2 * size) / diagonalCount;
+    }
+
+    @Override
+    public Matrix.ColumnOrdering getColumnOrdering() {
+      return columnOrdering;
+    }
+
+    @Override
+    public int[] getExcludedRowIds() {
+      return excludedRowIds;
+    }
+
+    @Override
+    public int[] getForcedRowIds() {
+      return forcedRowIds == null ? new int[0] : forcedRowIds;
+    }
+
+    @Override
+    public int getPrimaryColumnCount() {
+      return 2 * size;
+    }
+
+    @Override
+    public int getSecondaryColumnCount() {
+      return 2 * diagonalCount;
+    }
+
+    @Override
+    public Object getTemplateKey() {
+      return Arrays.asList(size, columnOrdering);
+    }
+
+    @Override
+    public boolean isInfeasible() {
+      return forcedRowIds == null;
+    }
+  }
+
   private static final String EMPTY_SYMBOL = ".";
   @Getter
   private final Set<Cell> existingValues;
@@ -244,21 +351,147 @@ public class NQueen implements Solvable<NQueen> {
     return new NQueen(size, existingValues);
   }
 
+  /**
+   * Counts the solutions with the bitboard engine, in parallel, falling back to the matrix for boards too large for
+   * it.
+   */
+  @Override
+  public long count() {
+    return NQueenBitboard.supports(size) ? new NQueenBitboard(size, existingValues).count() : solve().size();
+  }
+
+  @Override
+  public Object getStructureKey() {
+    return size;
+  }
+
   @Override
   public List<NQueen> solve(final Solver.Options options) {
-    ConstraintsGenerator constraintsGenerator = new ConstraintsGenerator(size, existingValues);
-
-    Function<Solution, NQueen> solutionParser = solution -> new NQueen(size,
-                                                                       solution.getRowNames()
-                                                                               .stream()
-                                                                               .map(constraintsGenerator::parseRowName)
-                                                                               .collect(toList()));
-
-    return MatrixBuilder.withConstraintsLines(constraintsGenerator.generate())
-                        .solve(options)
-                        .stream()
-                        .map(solutionParser)
-                        .collect(toList());
+    boolean matrixOptions = options.isCheapest() || options.isReduce() || options.getLogger().isPresent();
+    if (NQueenBitboard.supports(size) && options.getLimit().isPresent() && !matrixOptions) {
+      return solveWithBitboard(options.getLimit().get(), options::isCancelled);
+    }
+    return solve(options, new int[0]);
+  }
+
+  List<NQueen> solveWithBitboard(final int limit, final BooleanSupplier cancelled) {
+    return new NQueenBitboard(size, existingValues).solve(limit, cancelled)
+                                                   .stream()
+                                                   .map(columns -> new NQueen(size,
+                                                                              rangeClosed(1, size).mapToObj(row -> new Cell(row, columns[row - 1] + 1))
+                                                                                                  .collect(toList())))
+                                                   .collect(toList());
+  }
+
+  /**
+   * Enumerates one solution per symmetry class, the lexicographically smallest of its class, and adds up the class
+   * sizes. The symmetries that leave the preplaced queens in place map them onto each other, so every member of a
+   * class has the same queens above the first row without preplaced queens. The search places that row's queen one
+   * column at a time and excludes the cells that a symmetry maps onto a smaller column of that row, since a solution
+   * holding one of them has a smaller member. Only the solutions that tie with a smaller member on that row are
+   * found and then dropped.
+   */
+  public SymmetryReport solveWithSymmetry() {
+    List<Symmetry> group = Arrays.stream(Symmetry.values())
+                                 .filter(symmetry -> symmetry.apply(size, existingValues).equals(existingValues))
+                                 .collect(toList());
+    OptionalInt freeRow = rangeClosed(1, size).filter(row -> existingValues.stream().noneMatch(cell -> cell.getRow() == row))
+                                              .findFirst();
+    List<NQueen> candidates = newArrayList();
+    if (freeRow.isPresent()) {
+      int row = freeRow.getAsInt();
+      for (int column = 1; column <= size; column++) {
+        Cell queen = new Cell(row, column);
+        Set<Cell> smaller = getCellsMappedBefore(group, queen);
+        if (!smaller.contains(queen)) {
+          List<Cell> queens = newArrayList(existingValues);
+          queens.add(queen);
+          int[] excludedRowIds = smaller.stream().mapToInt(cell -> (cell.getRow() - 1) * size + cell.getColumn() - 1).toArray();
+          candidates.addAll(new NQueen(size, queens).solve(Solver.Options.builder().build(), excludedRowIds));
+        }
+      }
+    } else {
+      candidates.addAll(solve());
+    }
+
+    Comparator<Set<Cell>> order = comparing(cells -> cells.stream().sorted().map(Cell::getColumn).collect(toList()),
+                                            Ordering.<Integer>natural().lexicographical());
+    long total = 0;
+    List<NQueen> unique = newArrayList();
+    for (NQueen solution : candidates) {
+      Set<Set<Cell>> orbit = group.stream().map(symmetry -> symmetry.apply(size, solution.existingValues)).collect(toSet());
+      if (orbit.stream().min(order).orElseThrow(IllegalStateException::new).equals(solution.existingValues)) {
+        unique.add(solution);
+        total += orbit.size();
+      }
+    }
+    return new SymmetryReport(total, unique);
+  }
+
+  /**
+   * Returns the integer model of the board: row id {@code row * size + column}, primary columns for the rows then the
+   * columns, secondary columns for the diagonals then the anti-diagonals, all 0-based. Preplaced queens are forced
+   * rows.
+   */
+  public ConstraintModel<NQueen> toModel() {
+    return toModel(Matrix.ColumnOrdering.INPUT);
+  }
+
+  /**
+   * Returns the integer model of the board, its matrix laid out with the given ordering applied to the ranks, the
+   * files, the diagonals and the anti-diagonals each. {@link Matrix.ColumnOrdering#ORGAN_PIPE} tries the central
+   * lines first, which speeds up the search on larger boards but changes the order of the solutions.
+   */
+  public ConstraintModel<NQueen> toModel(final Matrix.ColumnOrdering ordering) {
+    return new Model(ordering, new int[0]);
+  }
+
+  private List<NQueen> solve(final Solver.Options options, final int[] excludedRowIds) {
+    return ModelSolver.solve(new Model(Matrix.ColumnOrdering.INPUT, excludedRowIds), options);
+  }
+
+  /**
+   * Returns the cells that a symmetry of the group maps onto the row of the queen, left of it.
+   */
+  private Set<Cell> getCellsMappedBefore(final List<Symmetry> group, final Cell queen) {
+    Set<Cell> result = newHashSet();
+    rangeClosed(1, size).forEach(row -> rangeClosed(1, size).forEach(column -> {
+      Cell cell = new Cell(row, column);
+      for (Symmetry symmetry : group) {
+        Cell image = symmetry.transform.apply(size, cell);
+        if (image.getRow().equals(queen.getRow()) && image.getColumn() < queen.getColumn()) {
+          result.add(cell);
+        }
+      }
+    }));
+    return result;
+  }
+
+  private NQueen fromRowIds(final int[] rowIds) {
+    return new NQueen(size, IntStream.of(rowIds).mapToObj(id -> new Cell(id / size + 1, id % size + 1)).collect(toList()));
+  }
+
+  /**
+   * Returns the row ids of the preplaced queens, or null when two of them attack each other.
+   */
+  private int[] getQueenRowIds() {
+    boolean[] rows = new boolean[size];
+    boolean[] columns = new boolean[size];
+    boolean[] diagonals = new boolean[2 * size];
+    boolean[] antiDiagonals = new boolean[2 * size];
+    int[] result = new int[existingValues.size()];
+    int index = 0;
+    for (Cell queen : existingValues) {
+      int row = queen.getRow() - 1;
+      int column = queen.getColumn() - 1;
+      checkArgument(row >= 0 && row < size && column >= 0 && column < size, "Queen %s outside of the board", queen);
+      if (rows[row] || columns[column] || diagonals[row + column] || antiDiagonals[row - column + size - 1]) {
+        return null;
+      }
+      rows[row] = columns[column] = diagonals[row + column] = antiDiagonals[row - column + size - 1] = true;
+      result[index++] = row * size + column;
+    }
+    return result;
   }
 
   public Object toPrettyString() {
@@ -0,0 +1,141 @@
+package dancinglinks;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Lists.newArrayList;
+
+import dancinglinks.NQueen.Cell;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Bit-parallel N-Queen backtracker placing one queen per row, with column and diagonal occupancy kept as masks.
+ */
+class NQueenBitboard {
+  private class CountTask extends RecursiveTask<Long> {
+    private static final long serialVersionUID = 1L;
+
+    private final int columns;
+    private final int left;
+    private final int right;
+    private final int row;
+    /**
+     * Number of solutions each solution of this task stands for, 2 for a mirrored first row queen.
+     */
+    private final int weight;
+
+    CountTask(final int row, final int columns, final int left, final int right, final int weight) {
+      this.row = row;
+      this.columns = columns;
+      this.left = left;
+      this.right = right;
+      this.weight = weight;
+    }
+
+    @Override
+    protected Long compute() {
+      if (row >= PARALLEL_ROWS || row == size) {
+        return weight * count(row, columns, left, right);
+      }
+      int available = getAvailable(row, columns, left, right);
+      if (row == 0 && mirrored) {
+        available &= (1 << (size + 1) / 2) - 1;
+      }
+      List<CountTask> tasks = newArrayList();
+      for (; available != 0; available &= available - 1) {
+        int bit = Integer.lowestOneBit(available);
+        int mirrorWeight = row == 0 && mirrored && bit != 1 << size / 2 ? 2 : 1;
+        tasks.add(new CountTask(row + 1, columns | bit, (left | bit) << 1, (right | bit) >>> 1, mirrorWeight));
+      }
+      return weight * invokeAll(tasks).stream().mapToLong(CountTask::join).sum();
+    }
+  }
+
+  private static final int PARALLEL_ROWS = 2;
+
+  private final int[] fixedColumns;
+  private final int full;
+  private final boolean infeasible;
+  /**
+   * Tells that only the left half of the first row is searched, the right half being its mirror.
+   */
+  private final boolean mirrored;
+  private final int size;
+
+  NQueenBitboard(final int size, final Collection<Cell> queens) {
+    this.size = size;
+    full = (1 << size) - 1;
+    fixedColumns = new int[size];
+    Arrays.fill(fixedColumns, -1);
+    boolean conflict = false;
+    for (Cell queen : queens) {
+      checkArgument(queen.getRow() >= 1 && queen.getRow() <= size && queen.getColumn() >= 1 && queen.getColumn() <= size,
+                    "Queen %s outside of the board", queen);
+      int row = queen.getRow() - 1;
+      conflict |= fixedColumns[row] >= 0 && fixedColumns[row] != queen.getColumn() - 1;
+      fixedColumns[row] = queen.getColumn() - 1;
+    }
+    infeasible = conflict;
+    mirrored = size > 1 && Arrays.stream(fixedColumns).allMatch(column -> column < 0);
+  }
+
+  static boolean supports(final int size) {
+    return size > 0 && size < Integer.SIZE;
+  }
+
+  /**
+   * Counts all solutions, splitting the first rows into fork/join tasks submitted as one. Without preplaced queens
+   * only the left half of the first row is searched and mirrored.
+   */
+  long count() {
+    return infeasible ? 0 : ForkJoinPool.commonPool().invoke(new CountTask(0, 0, 0, 0, 1));
+  }
+
+  /**
+   * Returns up to {@code limit} solutions as 0-based queen columns per row, in lexicographic order, stopping early
+   * once {@code cancelled} returns true.
+   */
+  List<int[]> solve(final int limit, final BooleanSupplier cancelled) {
+    List<int[]> result = newArrayList();
+    if (!infeasible) {
+      search(0, 0, 0, 0, new int[size], result, limit, cancelled);
+    }
+    return result;
+  }
+
+  private long count(final int row, final int columns, final int left, final int right) {
+    if (row == size) {
+      return 1;
+    }
+    long result = 0;
+    for (int available = getAvailable(row, columns, left, right); available != 0; available &= available - 1) {
+      int bit = Integer.lowestOneBit(available);
+      result += count(row + 1, columns | bit, (left | bit) << 1, (right | bit) >>> 1);
+    }
+    return result;
+  }
+
+  private int getAvailable(final int row, final int columns, final int left, final int right) {
+    int result = ~(columns | left | right) & full;
+    return fixedColumns[row] < 0 ? result : result & (1 << fixedColumns[row]);
+  }
+
+  private void search(final int row, final int columns, final int left, final int right,
+                      final int[] queens, final List<int[]> solutions, final int limit, final BooleanSupplier cancelled) {
+    if (row == size) {
+      solutions.add(queens.clone());
+      return;
+    }
+    for (int available = getAvailable(row, columns, left, right);
+         available != 0 && solutions.size() < limit && !cancelled.getAsBoolean();
+         available &= available - 1) {
+      int bit = Integer.lowestOneBit(available);
+      queens[row] = Integer.numberOfTrailingZeros(bit);
+      search(row + 1, columns | bit, (left | bit) << 1, (right | bit) >>> 1, queens, solutions, limit, cancelled);
+    }
+  }
+}
@@ -0,0 +1,461 @@
+package dancinglinks;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.copyOf;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.IntStream.range;
+
+import dancinglinks.Matrix.Node;
+import dancinglinks.Solver.Options;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Exact cover matrix kept in direct int buffers, searched on int handles so that the search allocates nothing per
+ * node. It is not a {@link Matrix}: it supports neither costs nor reduction, and the puzzles solving through
+ * {@link Matrix} or {@link ModelSolver} do not use it; it is solved on its own, as a {@link Solvable}.
+ */
+public class OffHeapMatrix implements Solvable<Solution> {
+  private static class IntArray {
+    private IntBuffer buffer;
+    private int size;
+
+    IntArray(final int capacity) {
+      buffer = allocate(capacity);
+    }
+
+    IntArray(final IntBuffer buffer) {
+      this.buffer = buffer;
+      size = buffer.limit();
+    }
+
+    void add(final int value) {
+      if (size == buffer.capacity()) {
+        IntBuffer grown = allocate(Math.max(16, size * 2));
+        buffer.position(0).limit(size);
+        grown.put(buffer);
+        buffer = grown;
+      }
+      buffer.put(size++, value);
+    }
+
+    int get(final int index) {
+      return buffer.get(index);
+    }
+
+    IntBuffer view() {
+      IntBuffer result = buffer.duplicate();
+      result.position(0).limit(size);
+      return result.slice();
+    }
+  }
+
+  private final List<String> columnNames;
+  private final IntArray columnIndexes;
+  private MatrixLinks links;
+  private final int primaryColumnCount;
+  private Map<Integer, Integer> rowIdIndex;
+  private final IntArray rowIds;
+  private Map<String, Integer> rowNameIndex;
+  private final List<String> rowNames;
+  private final IntArray rowOffsets;
+
+  public OffHeapMatrix(final int primaryColumnCount, final int secondaryColumnCount) {
+    this(primaryColumnCount, secondaryColumnCount, String::valueOf);
+  }
+
+  public OffHeapMatrix(final int primaryColumnCount, final int secondaryColumnCount, final IntFunction<String> columnNames) {
+    this(range(0, primaryColumnCount).mapToObj(columnNames).collect(toList()),
+         range(primaryColumnCount, primaryColumnCount + secondaryColumnCount).mapToObj(columnNames).collect(toList()));
+  }
+
+  public OffHeapMatrix(final List<String> primaryColumnNames, final List<String> secondaryColumnNames) {
+    primaryColumnCount = primaryColumnNames.size();
+    columnNames = newArrayList(primaryColumnNames);
+    columnNames.addAll(secondaryColumnNames);
+    checkArgument(columnNames.stream().distinct().count() == columnNames.size(), "Column names %s are not unique", columnNames);
+    columnIndexes = new IntArray(1024);
+    rowIds = new IntArray(256);
+    rowNames = newArrayList();
+    rowOffsets = new IntArray(256);
+    rowOffsets.add(0);
+  }
+
+  private OffHeapMatrix(final MatrixFile.Layout layout, final FileChannel channel) throws IOException {
+    primaryColumnCount = layout.getPrimaryColumnCount();
+    columnNames = layout.getColumnNames();
+    rowIds = new IntArray(MatrixFile.mapInts(channel, MapMode.READ_ONLY, layout.getRowIdsOffset(), layout.getRowCount()));
+    rowOffsets = new IntArray(MatrixFile.mapInts(channel, MapMode.READ_ONLY, layout.getRowOffsetsOffset(), layout.getRowCount() + 1));
+    columnIndexes = new IntArray(MatrixFile.mapInts(channel, MapMode.READ_ONLY, layout.getColumnIndexesOffset(), layout.getEntryCount()));
+    rowNames = layout.readRowNames(channel);
+    if (layout.hasLinks()) {
+      links = layout.mapLinks(channel, MapMode.PRIVATE);
+    }
+  }
+
+  public static OffHeapMatrix map(final Path path) {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      return new OffHeapMatrix(MatrixFile.Layout.read(path), channel);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static IntBuffer allocate(final int capacity) {
+    return ByteBuffer.allocateDirect(Integer.BYTES * capacity).order(ByteOrder.nativeOrder()).asIntBuffer();
+  }
+
+  public void addRow(final int rowId, final int... columnIds) {
+    checkArgument(rowId >= 0, "Row id %s is negative", rowId);
+    checkArgument(!getRowIdIndex().containsKey(rowId), "Row #%s already exists", rowId);
+    addRow(rowId, null, columnIds);
+  }
+
+  public void addRow(final String rowName, final int... columnIds) {
+    checkArgument(!getRowNameIndex().containsKey(rowName), "Row %s already exists", rowName);
+    addRow(-1, rowName, columnIds);
+  }
+
+  public void addRow(final String rowName, final List<String> columnNames) {
+    addRow(rowName, columnNames.stream().mapToInt(this::getColumnIndex).toArray());
+  }
+
+  public int getColumnCount() {
+    return columnNames.size();
+  }
+
+  public int getRowCount() {
+    return rowOffsets.size - 1;
+  }
+
+  public boolean isEmpty() {
+    return getLinks().right.get(0) == 0;
+  }
+
+  @Override
+  public List<Solution> solve(final Options options) {
+    return solveForcing(options, IntStream.empty());
+  }
+
+  public List<Solution> solve(final Options options, final Collection<String> forcedRowNames) {
+    return solveForcing(options, forcedRowNames.stream()
+                                               .distinct()
+                                               .mapToInt(name -> {
+                                                 Integer row = getRowNameIndex().get(name);
+                                                 checkArgument(row != null, "Row %s does not exist", name);
+                                                 return row;
+                                               }));
+  }
+
+  public List<Solution> solve(final Options options, final int... forcedRowIds) {
+    return solveForcing(options, IntStream.of(forcedRowIds)
+                                          .distinct()
+                                          .map(id -> {
+                                            Integer row = getRowIdIndex().get(id);
+                                            checkArgument(row != null, "Row #%s does not exist", id);
+                                            return row;
+                                          }));
+  }
+
+  private void addRow(final int rowId, final String rowName, final int[] columnIds) {
+    for (int columnId : columnIds) {
+      checkArgument(columnId >= 0 && columnId < columnNames.size(), "Column #%s does not exist", columnId);
+    }
+    for (int columnId : columnIds) {
+      columnIndexes.add(columnId);
+    }
+    if (rowName != null || !rowNames.isEmpty()) {
+      while (rowNames.size() < getRowCount()) {
+        rowNames.add(null);
+      }
+      rowNames.add(rowName);
+    }
+    if (rowName != null) {
+      getRowNameIndex().put(rowName, getRowCount());
+    }
+    if (rowId >= 0) {
+      getRowIdIndex().put(rowId, getRowCount());
+    }
+    rowIds.add(rowId);
+    rowOffsets.add(columnIndexes.size);
+    links = null;
+  }
+
+  private int getColumnIndex(final String columnName) {
+    int result = columnNames.indexOf(columnName);
+    checkState(result >= 0, "Column %s does not exist", columnName);
+    return result;
+  }
+
+  private MatrixLinks getLinks() {
+    if (links == null) {
+      links = MatrixLinks.compute(primaryColumnCount, columnNames.size(), rowOffsets.view(), columnIndexes.view(), OffHeapMatrix::allocate);
+    }
+    return links;
+  }
+
+  private Map<Integer, Integer> getRowIdIndex() {
+    if (rowIdIndex == null) {
+      rowIdIndex = newHashMap();
+      for (int row = 0; row < getRowCount(); row++) {
+        if (rowIds.get(row) >= 0) {
+          rowIdIndex.put(rowIds.get(row), row);
+        }
+      }
+    }
+    return rowIdIndex;
+  }
+
+  private Map<String, Integer> getRowNameIndex() {
+    if (rowNameIndex == null) {
+      rowNameIndex = newHashMap();
+      for (int row = 0; row < rowNames.size(); row++) {
+        if (rowNames.get(row) != null) {
+          rowNameIndex.put(rowNames.get(row), row);
+        }
+      }
+    }
+    return rowNameIndex;
+  }
+
+  private List<Solution> solveForcing(final Options options, final IntStream forcedRows) {
+    checkArgument(!options.isCheapest() && !options.isReduce(), "Cheapest and reduce modes are not supported off heap");
+    Cover cover = new Cover();
+    int[] rows = forcedRows.toArray();
+    int selected = 0;
+    while (selected < rows.length && cover.isUncoveredRow(rows[selected])) {
+      cover.selectRow(rows[selected++]);
+    }
+    List<Solution> result = newArrayList();
+    if (selected == rows.length) {
+      new Solver(options).forEach(cover, result::add);
+    }
+    while (selected-- > 0) {
+      cover.backtrack();
+    }
+    return copyOf(result);
+  }
+
+  /**
+   * The link buffers seen by the {@link Solver}: node handles are indexes in the buffers, the root being 0 and the
+   * column headers {@code 1..columnCount}. The search path is kept as two int stacks, the chosen columns and the node
+   * tried in each of them, the column itself standing for no row yet; every level covers a column, so the stacks never
+   * outgrow the column count.
+   */
+  private class Cover implements ExactCover {
+    private final int[] columns;
+    private final boolean[] covered;
+    private int depth;
+    private final IntBuffer down;
+    private final IntBuffer left;
+    private final IntBuffer right;
+    private final IntBuffer row;
+    private final int[] path;
+    private final List<Node> solutionColumns;
+    private final IntBuffer top;
+    private final IntBuffer up;
+
+    Cover() {
+      MatrixLinks links = getLinks();
+      down = links.down;
+      left = links.left;
+      right = links.right;
+      row = links.row;
+      top = links.top;
+      up = links.up;
+      covered = new boolean[columnNames.size() + 1];
+      columns = new int[columnNames.size()];
+      path = new int[columnNames.size()];
+      solutionColumns = columnNames.stream().map(Node::new).collect(toList());
+    }
+
+    @Override
+    public void backtrack() {
+      depth--;
+      if (path[depth] != columns[depth]) {
+        uncoverRowColumns(path[depth]);
+      }
+      uncover(columns[depth]);
+    }
+
+    @Override
+    public void chooseColumn(final Solver.ColumnSelector selector) {
+      int column = right.get(0);
+      if (selector != Solver.ColumnSelector.FIRST) {
+        for (int other = right.get(column); other != 0; other = right.get(other)) {
+          if (top.get(other) < top.get(column)) {
+            column = other;
+          }
+        }
+      }
+      cover(column);
+      columns[depth] = column;
+      path[depth++] = column;
+    }
+
+    @Override
+    public Object describeColumns() {
+      List<String> result = newArrayList();
+      for (int column = right.get(0); column != 0; column = right.get(column)) {
+        result.add(columnNames.get(column - 1));
+      }
+      return result;
+    }
+
+    @Override
+    public Object describeLevel() {
+      int node = path[depth - 1];
+      return node == columns[depth - 1] ? columnNames.get(node - 1) : rowIds.get(row.get(node - columnNames.size() - 1));
+    }
+
+    @Override
+    public double getCost() {
+      return 0;
+    }
+
+    @Override
+    public double getCostLowerBound() {
+      return 0;
+    }
+
+    @Override
+    public Solution getSolution() {
+      List<List<Node>> nodes = newArrayList();
+      for (int level = 0; level < depth; level++) {
+        int first = path[level];
+        int rowIndex = row.get(first - columnNames.size() - 1);
+        Node rowHeader = new Node(rowNames.isEmpty() ? null : rowNames.get(rowIndex));
+        rowHeader.setIndex(rowIds.get(rowIndex));
+        List<Node> rowNodes = newArrayList();
+        forEachNode(first, node -> {
+          Node solutionNode = new Node(null);
+          rowHeader.getLeft().insertRight(solutionNode);
+          solutionNode.setColumnHeader(solutionColumns.get(top.get(node) - 1));
+          rowNodes.add(solutionNode);
+        });
+        nodes.add(rowNodes);
+      }
+      return new Solution(nodes);
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return right.get(0) == 0;
+    }
+
+    @Override
+    public boolean nextRow() {
+      int level = depth - 1;
+      int node = path[level];
+      if (node != columns[level]) {
+        uncoverRowColumns(node);
+      }
+      node = down.get(node);
+      path[level] = node;
+      if (node == columns[level]) {
+        return false;
+      }
+      coverRowColumns(node);
+      return true;
+    }
+
+    /**
+     * Pushes the given row on the path as a level of its own, covering its columns.
+     */
+    void selectRow(final int rowIndex) {
+      int first = firstNode(rowIndex);
+      cover(top.get(first));
+      coverRowColumns(first);
+      columns[depth] = top.get(first);
+      path[depth++] = first;
+    }
+
+    private void cover(final int column) {
+      covered[column] = true;
+      left.put(right.get(column), left.get(column));
+      right.put(left.get(column), right.get(column));
+      for (int node = down.get(column); node != column; node = down.get(node)) {
+        for (int other = nextInRow(node); other != node; other = nextInRow(other)) {
+          up.put(down.get(other), up.get(other));
+          down.put(up.get(other), down.get(other));
+          top.put(top.get(other), top.get(top.get(other)) - 1);
+        }
+      }
+    }
+
+    private void coverRowColumns(final int node) {
+      for (int other = nextInRow(node); other != node; other = nextInRow(other)) {
+        cover(top.get(other));
+      }
+    }
+
+    private int firstNode(final int rowIndex) {
+      return columnNames.size() + 1 + rowOffsets.get(rowIndex);
+    }
+
+    private void forEachNode(final int first, final IntConsumer action) {
+      int node = first;
+      do {
+        action.accept(node);
+        node = nextInRow(node);
+      } while (node != first);
+    }
+
+    private boolean isUncoveredRow(final int rowIndex) {
+      for (int node = firstNode(rowIndex); node < firstNode(rowIndex + 1); node++) {
+        if (covered[top.get(node)]) {
+          return false;
+        }
+      }
+      return rowOffsets.get(rowIndex) < rowOffsets.get(rowIndex + 1);
+    }
+
+    private int nextInRow(final int node) {
+      int rowIndex = row.get(node - columnNames.size() - 1);
+      int next = node + 1;
+      return next < firstNode(rowIndex + 1) ? next : firstNode(rowIndex);
+    }
+
+    private int previousInRow(final int node) {
+      int rowIndex = row.get(node - columnNames.size() - 1);
+      int first = firstNode(rowIndex);
+      return node > first ? node - 1 : firstNode(rowIndex + 1) - 1;
+    }
+
+    private void uncover(final int column) {
+      for (int node = up.get(column); node != column; node = up.get(node)) {
+        for (int other = previousInRow(node); other != node; other = previousInRow(other)) {
+          top.put(top.get(other), top.get(top.get(other)) + 1);
+          down.put(up.get(other), other);
+          up.put(down.get(other), other);
+        }
+      }
+      left.put(right.get(column), column);
+      right.put(left.get(column), column);
+      covered[column] = false;
+    }
+
+    private void uncoverRowColumns(final int node) {
+      for (int other = previousInRow(node); other != node; other = previousInRow(other)) {
+        uncover(top.get(other));
+      }
+    }
+  }
+}
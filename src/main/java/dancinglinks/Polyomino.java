@@ -0,0 +1,466 @@
+package dancinglinks;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+import static com.google.common.collect.Sets.newLinkedHashSet;
+import static java.lang.System.lineSeparator;
+import static java.util.Arrays.asList;
+import static java.util.Comparator.comparing;
+import static java.util.Comparator.naturalOrder;
+import static java.util.stream.Collectors.toCollection;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.primitives.Ints;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Value;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Tiles a board with distinct pieces, each used exactly once. Solutions are reported once per symmetry class of the
+ * board: when a piece has no placement left in place by a board symmetry, only one placement per orbit is kept for
+ * it, otherwise every tiling that is not the smallest of its class is filtered out.
+ */
+@EqualsAndHashCode(of = {"board", "labels"})
+public class Polyomino implements Solvable<Polyomino> {
+
+  @Value
+  public static class Cell implements Comparable<Cell> {
+    final int row;
+    final int column;
+
+    @Override
+    public int compareTo(final Cell other) {
+      return ComparisonChain.start()
+                            .compare(row, other.getRow())
+                            .compare(column, other.getColumn())
+                            .result();
+    }
+
+    Cell translate(final int rows, final int columns) {
+      return new Cell(row + rows, column + columns);
+    }
+  }
+
+  @Value
+  public static class Piece {
+    final char name;
+    final Set<Cell> cells;
+
+    /**
+     * Reads a piece drawn with any character but {@code '.'} and spaces.
+     */
+    public static Piece parse(final char name, final String... lines) {
+      Set<Cell> cells = newLinkedHashSet();
+      for (int row = 0; row < lines.length; row++) {
+        for (int column = 0; column < lines[row].length(); column++) {
+          char value = lines[row].charAt(column);
+          if (value != EMPTY_SYMBOL && value != ' ') {
+            cells.add(new Cell(row, column));
+          }
+        }
+      }
+      checkArgument(!cells.isEmpty(), "Piece %s has no cell", name);
+      return new Piece(name, normalize(cells));
+    }
+
+    /**
+     * Returns the distinct rotations and reflections of the piece, normalized to start at row and column 0.
+     */
+    public List<Set<Cell>> getOrientations() {
+      Set<Set<Cell>> result = newLinkedHashSet();
+      for (UnaryOperator<Cell> transform : TRANSFORMS) {
+        result.add(normalize(cells.stream().map(transform).collect(toSet())));
+      }
+      return ImmutableList.copyOf(result);
+    }
+  }
+
+  /**
+   * Placements of the pieces on a board, with the placements of the restricted piece outside of their canonical
+   * orientation and position disallowed.
+   */
+  private static class Layout implements ConstraintModel<Polyomino> {
+    final boolean[] allowed;
+    final List<Cell> board;
+    final boolean filtered;
+    final Map<Cell, Integer> indexes = newHashMap();
+    final int pieceCount;
+    final int[] pieceSizes;
+    final int[] placementPieces;
+    final List<int[]> placements = newArrayList();
+    final Polyomino polyomino;
+    final int restricted;
+    final List<int[]> symmetries;
+
+    Layout(final Polyomino polyomino) {
+      this.polyomino = polyomino;
+      board = polyomino.board;
+      pieceCount = polyomino.pieces.size();
+      pieceSizes = polyomino.pieces.stream().mapToInt(piece -> piece.getCells().size()).toArray();
+      for (int i = 0; i < board.size(); i++) {
+        indexes.put(board.get(i), i);
+      }
+      symmetries = getSymmetries(board, indexes);
+
+      List<Integer> pieces = newArrayList();
+      List<Map<List<Integer>, Integer>> placementIds = newArrayList();
+      for (int piece = 0; piece < pieceCount; piece++) {
+        Map<List<Integer>, Integer> ids = newHashMap();
+        for (Set<Cell> orientation : polyomino.pieces.get(piece).getOrientations()) {
+          Cell first = orientation.iterator().next();
+          for (Cell anchor : board) {
+            int[] cells = orientation.stream()
+                                     .map(cell -> cell.translate(anchor.getRow() - first.getRow(), anchor.getColumn() - first.getColumn()))
+                                     .map(indexes::get)
+                                     .mapToInt(index -> index == null ? -1 : index)
+                                     .sorted()
+                                     .toArray();
+            if (cells[0] >= 0) {
+              ids.put(Ints.asList(cells), placements.size());
+              placements.add(cells);
+              pieces.add(piece);
+            }
+          }
+        }
+        placementIds.add(ids);
+      }
+      placementPieces = Ints.toArray(pieces);
+
+      restricted = getRestrictedPiece(placementIds);
+      filtered = symmetries.size() > 1 && restricted < 0;
+      allowed = new boolean[placements.size()];
+      for (int id = 0; id < allowed.length; id++) {
+        int piece = placementPieces[id];
+        allowed[id] = piece != restricted || id == getCanonicalPlacement(placementIds.get(piece), placements.get(id));
+      }
+    }
+
+    @Override
+    public boolean accept(final Polyomino solution) {
+      return !filtered || isCanonical(solution.labels);
+    }
+
+    @Override
+    public Polyomino decode(final int[] rowIds) {
+      char[] solved = emptyLabels(board.size());
+      for (int id : rowIds) {
+        char name = polyomino.pieces.get(placementPieces[id]).getName();
+        IntStream.of(placements.get(id)).forEach(cell -> solved[cell] = name);
+      }
+      return new Polyomino(board, polyomino.pieces, solved);
+    }
+
+    /**
+     * Generates one row per allowed placement, covering the primary columns of its piece then of its board cells.
+     */
+    @Override
+    public void generateRows(final Rows rows) {
+      for (int id = 0; id < placements.size(); id++) {
+        if (allowed[id]) {
+          int[] cells = placements.get(id);
+          int[] columnIds = new int[cells.length + 1];
+          columnIds[0] = placementPieces[id];
+          for (int i = 0; i < cells.length; i++) {
+            columnIds[i + 1] = pieceCount + cells[i];
+          }
+          rows.add(id, columnIds);
+        }
+      }
+    }
+
+    @Override
+    public int getPrimaryColumnCount() {
+      return pieceCount + board.size();
+    }
+
+    @Override
+    public boolean isFiltered() {
+      return filtered;
+    }
+
+    /**
+     * Tells that the pieces do not have the area of the board.
+     */
+    @Override
+    public boolean isInfeasible() {
+      return IntStream.of(pieceSizes).sum() != board.size();
+    }
+
+    /**
+     * Fills boards wider than tall column by column, so that the first empty cell has few candidate placements.
+     */
+    PolyominoMaskSolver createMaskSolver() {
+      Cell origin = getOrigin(board);
+      int height = board.stream().mapToInt(Cell::getRow).max().orElse(0) - origin.getRow() + 1;
+      int width = board.stream().mapToInt(Cell::getColumn).max().orElse(0) - origin.getColumn() + 1;
+      Comparator<Cell> order = width > height ? comparing(Cell::getColumn).thenComparing(Cell::getRow) : naturalOrder();
+      List<Cell> ordered = board.stream().sorted(order).collect(toList());
+      int[] cellOrder = board.stream().mapToInt(ordered::indexOf).toArray();
+      int[][] neighbors = board.stream()
+                               .map(cell -> Stream.of(cell.translate(-1, 0), cell.translate(1, 0), cell.translate(0, -1), cell.translate(0, 1))
+                                                  .filter(indexes::containsKey)
+                                                  .mapToInt(indexes::get)
+                                                  .toArray())
+                               .toArray(int[][]::new);
+      return new PolyominoMaskSolver(cellOrder, neighbors, pieceSizes, placements, placementPieces, allowed, restricted);
+    }
+
+    boolean isMaskSupported() {
+      return PolyominoMaskSolver.supports(board.size(), pieceCount);
+    }
+
+    /**
+     * Checks that the labels are the smallest among their images by the board symmetries.
+     */
+    boolean isCanonical(final char[] labels) {
+      char[] image = new char[labels.length];
+      for (int[] symmetry : symmetries) {
+        for (int i = 0; i < labels.length; i++) {
+          image[symmetry[i]] = labels[i];
+        }
+        int i = 0;
+        while (i < labels.length && image[i] == labels[i]) {
+          i++;
+        }
+        if (i < labels.length && image[i] < labels[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private int getCanonicalPlacement(final Map<List<Integer>, Integer> placementIds, final int[] cells) {
+      return symmetries.stream()
+                       .mapToInt(symmetry -> placementIds.get(Ints.asList(apply(symmetry, cells))))
+                       .min()
+                       .orElseThrow(IllegalStateException::new);
+    }
+
+    /**
+     * Picks the piece with the fewest placement orbits among the ones no board symmetry leaves in place, or -1.
+     */
+    private int getRestrictedPiece(final List<Map<List<Integer>, Integer>> placementIds) {
+      int result = -1;
+      long resultOrbits = Long.MAX_VALUE;
+      for (int piece = 0; piece < placementIds.size() && symmetries.size() > 1; piece++) {
+        Collection<List<Integer>> cells = placementIds.get(piece).keySet();
+        boolean free = cells.stream()
+                            .allMatch(placement -> symmetries.stream()
+                                                             .skip(1)
+                                                             .noneMatch(symmetry -> Ints.asList(apply(symmetry, Ints.toArray(placement)))
+                                                                                        .equals(placement)));
+        if (free && cells.size() / symmetries.size() < resultOrbits) {
+          result = piece;
+          resultOrbits = cells.size() / symmetries.size();
+        }
+      }
+      return result;
+    }
+
+    private static int[] apply(final int[] symmetry, final int[] cells) {
+      return IntStream.of(cells).map(cell -> symmetry[cell]).sorted().toArray();
+    }
+
+    /**
+     * Returns the board symmetries as permutations of the cell indexes, the identity first.
+     */
+    private static List<int[]> getSymmetries(final List<Cell> board, final Map<Cell, Integer> indexes) {
+      List<int[]> result = newArrayList();
+      Cell origin = getOrigin(board);
+      for (UnaryOperator<Cell> transform : TRANSFORMS) {
+        List<Cell> image = board.stream().map(transform).collect(toList());
+        Cell imageOrigin = getOrigin(image);
+        int[] permutation = image.stream()
+                                 .map(cell -> cell.translate(origin.getRow() - imageOrigin.getRow(),
+                                                             origin.getColumn() - imageOrigin.getColumn()))
+                                 .map(indexes::get)
+                                 .mapToInt(index -> index == null ? -1 : index)
+                                 .toArray();
+        if (IntStream.of(permutation).allMatch(index -> index >= 0)) {
+          result.add(permutation);
+        }
+      }
+      return result;
+    }
+  }
+
+  public static final List<Piece> PENTOMINOES = ImmutableList.of(Piece.parse('F', ".FF", "FF.", ".F."),
+                                                                 Piece.parse('I', "IIIII"),
+                                                                 Piece.parse('L', "LLLL", "L..."),
+                                                                 Piece.parse('N', "NN..", ".NNN"),
+                                                                 Piece.parse('P', "PPP", "PP."),
+                                                                 Piece.parse('T', "TTT", ".T.", ".T."),
+                                                                 Piece.parse('U', "U.U", "UUU"),
+                                                                 Piece.parse('V', "V..", "V..", "VVV"),
+                                                                 Piece.parse('W', "W..", "WW.", ".WW"),
+                                                                 Piece.parse('X', ".X.", "XXX", ".X."),
+                                                                 Piece.parse('Y', "YYYY", ".Y.."),
+                                                                 Piece.parse('Z', "ZZ.", ".Z.", ".ZZ"));
+
+  private static final char EMPTY_SYMBOL = '.';
+  private static final List<UnaryOperator<Cell>> TRANSFORMS = asList(cell -> cell,
+                                                                     cell -> new Cell(cell.getColumn(), -cell.getRow()),
+                                                                     cell -> new Cell(-cell.getRow(), -cell.getColumn()),
+                                                                     cell -> new Cell(-cell.getColumn(), cell.getRow()),
+                                                                     cell -> new Cell(cell.getRow(), -cell.getColumn()),
+                                                                     cell -> new Cell(-cell.getRow(), cell.getColumn()),
+                                                                     cell -> new Cell(cell.getColumn(), cell.getRow()),
+                                                                     cell -> new Cell(-cell.getColumn(), -cell.getRow()));
+
+  @Getter
+  private final List<Cell> board;
+  private final char[] labels;
+  @Getter
+  private final List<Piece> pieces;
+
+  public Polyomino(final Collection<Cell> board, final List<Piece> pieces) {
+    this(ImmutableSet.copyOf(board).stream().sorted().collect(toList()), pieces, null);
+  }
+
+  private Polyomino(final List<Cell> board, final List<Piece> pieces, final char[] labels) {
+    checkArgument(!board.isEmpty(), "Board has no cell");
+    checkArgument(pieces.stream().map(Piece::getName).distinct().count() == pieces.size(), "Piece names should be distinct");
+    this.board = ImmutableList.copyOf(board);
+    this.pieces = ImmutableList.copyOf(pieces);
+    this.labels = labels == null ? emptyLabels(board.size()) : labels;
+  }
+
+  /**
+   * Reads a board drawn with {@code '.'} for its cells, any other character being outside of it.
+   */
+  public static Polyomino parse(final List<String> input, final List<Piece> pieces) {
+    List<Cell> board = newArrayList();
+    for (int row = 0; row < input.size(); row++) {
+      for (int column = 0; column < input.get(row).length(); column++) {
+        if (input.get(row).charAt(column) == EMPTY_SYMBOL) {
+          board.add(new Cell(row, column));
+        }
+      }
+    }
+    return new Polyomino(board, pieces);
+  }
+
+  public static Polyomino rectangle(final int rows, final int columns, final List<Piece> pieces) {
+    List<Cell> board = newArrayList();
+    for (int row = 0; row < rows; row++) {
+      for (int column = 0; column < columns; column++) {
+        board.add(new Cell(row, column));
+      }
+    }
+    return new Polyomino(board, pieces);
+  }
+
+  @Override
+  public long count() {
+    Layout layout = new Layout(this);
+    if (layout.isMaskSupported()) {
+      return forEach(layout, Solver.Options.builder().build(), solution -> { });
+    }
+    return ModelSolver.count(layout, Solver.Options.builder().build());
+  }
+
+  /**
+   * Hands every tiling to the consumer as soon as it is found, returning their count.
+   */
+  public long forEach(final Solver.Options options, final Consumer<Polyomino> consumer) {
+    return forEach(new Layout(this), options, consumer);
+  }
+
+  /**
+   * Returns the piece covering the cell, or {@code '.'} when the board is not solved.
+   */
+  public char getLabel(final Cell cell) {
+    int index = board.indexOf(cell);
+    checkArgument(index >= 0, "Cell %s is not on the board", cell);
+    return labels[index];
+  }
+
+  @Override
+  public List<Polyomino> solve(final Solver.Options options) {
+    List<Polyomino> result = newArrayList();
+    forEach(new Layout(this), options, result::add);
+    return result;
+  }
+
+  /**
+   * Returns the integer model of the tiling: primary columns for the pieces then the board cells, one row per
+   * placement, with the placements of the symmetry breaking piece restricted.
+   */
+  public ConstraintModel<Polyomino> toModel() {
+    return new Layout(this);
+  }
+
+  public String toPrettyString() {
+    Cell origin = getOrigin(board);
+    int rows = board.stream().mapToInt(Cell::getRow).max().orElse(0) - origin.getRow() + 1;
+    int columns = board.stream().mapToInt(Cell::getColumn).max().orElse(0) - origin.getColumn() + 1;
+    char[][] grid = new char[rows][columns];
+    Arrays.stream(grid).forEach(row -> Arrays.fill(row, ' '));
+    for (int i = 0; i < board.size(); i++) {
+      grid[board.get(i).getRow() - origin.getRow()][board.get(i).getColumn() - origin.getColumn()] = labels[i];
+    }
+
+    StringBuilder result = new StringBuilder();
+    result.append(getClass().getSimpleName())
+          .append(": ").append(pieces.size()).append(" pieces").append(lineSeparator());
+    Arrays.stream(grid).forEach(row -> result.append(row).append(lineSeparator()));
+    return result.toString();
+  }
+
+  /**
+   * Uses the mask engine unless the options need the matrix.
+   */
+  private long forEach(final Layout layout, final Solver.Options options, final Consumer<Polyomino> consumer) {
+    boolean matrixOptions = options.isCheapest() || options.isReduce() || options.getLogger().isPresent();
+    if (!layout.isMaskSupported() || matrixOptions) {
+      return ModelSolver.forEach(layout, options, consumer);
+    }
+    if (layout.isInfeasible()) {
+      return 0;
+    }
+    return layout.createMaskSolver().solve(options.getLimit().orElse(Integer.MAX_VALUE), options::isCancelled, placementIds -> {
+      Polyomino solution = layout.decode(placementIds);
+      if (!layout.accept(solution)) {
+        return false;
+      }
+      consumer.accept(solution);
+      return true;
+    });
+  }
+
+  private static char[] emptyLabels(final int size) {
+    char[] result = new char[size];
+    Arrays.fill(result, EMPTY_SYMBOL);
+    return result;
+  }
+
+  private static Cell getOrigin(final Collection<Cell> cells) {
+    return new Cell(cells.stream().mapToInt(Cell::getRow).min().orElse(0),
+                    cells.stream().mapToInt(Cell::getColumn).min().orElse(0));
+  }
+
+  private static Set<Cell> normalize(final Collection<Cell> cells) {
+    Cell origin = getOrigin(cells);
+    return cells.stream()
+                .map(cell -> cell.translate(-origin.getRow(), -origin.getColumn()))
+                .sorted()
+                .collect(toCollection(LinkedHashSet::new));
+  }
+}
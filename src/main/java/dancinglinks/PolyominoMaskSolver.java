@@ -0,0 +1,161 @@
+package dancinglinks;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Tiles boards of at most 64 cells with one bit per cell. The first piece, when given, is placed before anything
+ * else; then the first empty cell is always filled with a placement whose first cell it is.
+ */
+class PolyominoMaskSolver {
+  private class Search {
+    final BooleanSupplier cancelled;
+    final Predicate<int[]> consumer;
+    long count;
+    final long limit;
+    final int[] stack = new int[pieceCount];
+
+    Search(final long limit, final BooleanSupplier cancelled, final Predicate<int[]> consumer) {
+      this.limit = limit;
+      this.cancelled = cancelled;
+      this.consumer = consumer;
+    }
+
+    void search(final long filled, final long usedPieces, final int depth) {
+      if (filled == full) {
+        if (consumer.test(Arrays.copyOf(stack, depth))) {
+          count++;
+        }
+        return;
+      }
+      if (hasDeadRegion(filled)) {
+        return;
+      }
+      int cell = Long.numberOfTrailingZeros(~filled);
+      for (int id : placementsByCell[cell]) {
+        if (count >= limit || cancelled.getAsBoolean()) {
+          return;
+        }
+        long piece = 1L << pieces[id];
+        if ((usedPieces & piece) == 0 && (masks[id] & filled) == 0) {
+          stack[depth] = id;
+          search(filled | masks[id], usedPieces | piece, depth + 1);
+        }
+      }
+    }
+  }
+
+  private final long full;
+  private final long[] masks;
+  private final long[] neighbors;
+  private final int pieceCount;
+  private final int[] pieces;
+  private final int[][] placementsByCell;
+  private final int[] firstPlacements;
+  private final int smallestPiece;
+  private final int unit;
+
+  /**
+   * @param cellOrder bit of every board cell, the search filling cells by increasing bit
+   * @param neighbors board cells next to every board cell
+   * @param pieceSizes cell count of every piece
+   * @param placements board cells of every placement
+   * @param placementPieces piece of every placement
+   * @param allowed placements the search may use
+   * @param firstPiece piece placed first, or -1
+   */
+  PolyominoMaskSolver(final int[] cellOrder,
+                      final int[][] neighbors,
+                      final int[] pieceSizes,
+                      final List<int[]> placements,
+                      final int[] placementPieces,
+                      final boolean[] allowed,
+                      final int firstPiece) {
+    checkArgument(supports(cellOrder.length, pieceSizes.length),
+                  "Unsupported board of %s cells and %s pieces", cellOrder.length, pieceSizes.length);
+    pieceCount = pieceSizes.length;
+    full = cellOrder.length == Long.SIZE ? -1 : (1L << cellOrder.length) - 1;
+    pieces = placementPieces;
+    smallestPiece = IntStream.of(pieceSizes).min().orElse(1);
+    unit = IntStream.of(pieceSizes).reduce(PolyominoMaskSolver::gcd).orElse(1);
+    this.neighbors = new long[cellOrder.length];
+    for (int cell = 0; cell < cellOrder.length; cell++) {
+      for (int neighbor : neighbors[cell]) {
+        this.neighbors[cellOrder[cell]] |= 1L << cellOrder[neighbor];
+      }
+    }
+    masks = new long[placements.size()];
+    int[] firstCells = new int[placements.size()];
+    for (int id = 0; id < masks.length; id++) {
+      for (int cell : placements.get(id)) {
+        masks[id] |= 1L << cellOrder[cell];
+      }
+      firstCells[id] = Long.numberOfTrailingZeros(masks[id]);
+    }
+    placementsByCell = IntStream.range(0, cellOrder.length)
+                                .mapToObj(cell -> IntStream.range(0, masks.length)
+                                                           .filter(id -> allowed[id] && firstCells[id] == cell)
+                                                           .filter(id -> placementPieces[id] != firstPiece)
+                                                           .toArray())
+                                .toArray(int[][]::new);
+    firstPlacements = IntStream.range(0, masks.length)
+                               .filter(id -> allowed[id] && placementPieces[id] == firstPiece)
+                               .toArray();
+  }
+
+  static boolean supports(final int cellCount, final int pieceCount) {
+    return cellCount <= Long.SIZE && pieceCount <= Long.SIZE;
+  }
+
+  private static int gcd(final int a, final int b) {
+    return b == 0 ? a : gcd(b, a % b);
+  }
+
+  /**
+   * Checks whether an empty region is too small for any piece, or not a multiple of the piece sizes' common divisor.
+   */
+  private boolean hasDeadRegion(final long filled) {
+    if (unit == 1 && smallestPiece == 1) {
+      return false;
+    }
+    long empty = ~filled & full;
+    while (empty != 0) {
+      long region = Long.lowestOneBit(empty);
+      for (long frontier = region; frontier != 0; ) {
+        long grown = 0;
+        for (long bits = frontier; bits != 0; bits &= bits - 1) {
+          grown |= neighbors[Long.numberOfTrailingZeros(bits)];
+        }
+        frontier = grown & empty & ~region;
+        region |= frontier;
+      }
+      int size = Long.bitCount(region);
+      if (size < smallestPiece || size % unit != 0) {
+        return true;
+      }
+      empty &= ~region;
+    }
+    return false;
+  }
+
+  /**
+   * Hands the placement ids of every tiling to the consumer, which tells whether it counts, until {@code limit}
+   * tilings counted or {@code cancelled} returns true. Returns their count.
+   */
+  long solve(final long limit, final BooleanSupplier cancelled, final Predicate<int[]> consumer) {
+    Search search = new Search(limit, cancelled, consumer);
+    if (firstPlacements.length == 0) {
+      search.search(0, 0, 0);
+    }
+    for (int id : firstPlacements) {
+      search.stack[0] = id;
+      search.search(masks[id], 1L << pieces[id], 1);
+    }
+    return search.count;
+  }
+}
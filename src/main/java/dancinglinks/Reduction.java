@@ -0,0 +1,48 @@
+package dancinglinks;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Lists.newLinkedList;
+
+import dancinglinks.Matrix.Node;
+import lombok.Getter;
+
+import java.util.Deque;
+import java.util.List;
+
+public class Reduction {
+  @Getter
+  private final List<Node> forcedRows = newArrayList();
+  @Getter
+  private boolean infeasible;
+  @Getter
+  private final List<Node> removedRows = newArrayList();
+  private final Deque<Runnable> undoLog = newLinkedList();
+
+  public double getForcedCost() {
+    return forcedRows.stream().mapToDouble(Node::getCost).sum();
+  }
+
+  public boolean isEmpty() {
+    return forcedRows.isEmpty() && removedRows.isEmpty();
+  }
+
+  public void undo() {
+    while (!undoLog.isEmpty()) {
+      undoLog.pop().run();
+    }
+  }
+
+  void addForcedRow(final Node rowHeader, final Runnable undo) {
+    forcedRows.add(rowHeader);
+    undoLog.push(undo);
+  }
+
+  void addRemovedRow(final Node rowHeader, final Runnable undo) {
+    removedRows.add(rowHeader);
+    undoLog.push(undo);
+  }
+
+  void setInfeasible() {
+    infeasible = true;
+  }
+}
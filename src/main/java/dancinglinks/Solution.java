@@ -21,9 +21,21 @@ public class Solution {
                 .collect(toList());
   }
 
+  public double getCost() {
+    return nodes.stream()
+                .mapToDouble(list -> list.get(0).getRowHeader().getCost())
+                .sum();
+  }
+
+  public int[] getRowIds() {
+    return nodes.stream()
+                .mapToInt(list -> list.get(0).getRowHeader().getIndex())
+                .toArray();
+  }
+
   public List<String> getRowNames() {
     return nodes.stream()
-                .map(list -> list.get(0).getRowHeader().getLabel())
+                .map(list -> list.get(0).getRowHeader().toString())
                 .collect(toList());
   }
 
@@ -33,6 +45,7 @@ public class Solution {
                       .add("nodes", nodes)
                       .add("rowNames", getRowNames())
                       .add("coveredColumnNames", getCoveredColumnNames())
+                      .add("cost", getCost())
                       .toString();
   }
 }
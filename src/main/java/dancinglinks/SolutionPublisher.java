@@ -0,0 +1,129 @@
+package dancinglinks;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Publishes the solutions of a matrix as the search finds them. The search runs on the executor and waits at each
+ * solution until the subscriber requests more, so it never gets ahead of the demand; cancelling the subscription
+ * stops it. The matrix is in use until the search ends, hence a single subscriber.
+ */
+public class SolutionPublisher implements Flow.Publisher<Solution> {
+  private class SolutionSubscription implements Flow.Subscription {
+    private volatile boolean cancelled;
+    private long demand;
+    private volatile RuntimeException failure;
+    private final Flow.Subscriber<? super Solution> subscriber;
+
+    SolutionSubscription(final Flow.Subscriber<? super Solution> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public synchronized void cancel() {
+      cancelled = true;
+      notifyAll();
+    }
+
+    @Override
+    public synchronized void request(final long n) {
+      if (n <= 0) {
+        failure = new IllegalArgumentException("Requested " + n + " solutions, expected a positive count");
+        cancelled = true;
+      } else {
+        demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+      }
+      notifyAll();
+    }
+
+    /**
+     * Waits until a solution is requested, returning false when cancelled meanwhile.
+     */
+    private synchronized boolean awaitDemand() {
+      try {
+        while (demand == 0 && !cancelled) {
+          wait();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        cancelled = true;
+      }
+      if (cancelled) {
+        return false;
+      }
+      demand--;
+      return true;
+    }
+
+    private void run() {
+      Solver.Options searchOptions = options.toBuilder()
+                                            .cancellation(() -> cancelled || options.isCancelled())
+                                            .build();
+      try {
+        matrix.forEach(searchOptions, forcedRowIds, excludedRowIds, solution -> {
+          if (awaitDemand()) {
+            subscriber.onNext(solution);
+          }
+        });
+      } catch (RuntimeException e) {
+        failure = failure == null ? e : failure;
+      }
+      if (failure != null) {
+        subscriber.onError(failure);
+      } else if (!cancelled) {
+        subscriber.onComplete();
+      }
+    }
+  }
+
+  private static final Flow.Subscription NO_SUBSCRIPTION = new Flow.Subscription() {
+    @Override
+    public void cancel() {
+    }
+
+    @Override
+    public void request(final long n) {
+    }
+  };
+
+  private final int[] excludedRowIds;
+  private final Executor executor;
+  private final int[] forcedRowIds;
+  private final Matrix matrix;
+  private final Solver.Options options;
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+
+  public SolutionPublisher(final Matrix matrix,
+                           final Solver.Options options,
+                           final int[] forcedRowIds,
+                           final int[] excludedRowIds,
+                           final Executor executor) {
+    checkArgument(!options.isCheapest(), "Cheapest solutions can not be published");
+    this.matrix = matrix;
+    this.options = options;
+    this.forcedRowIds = forcedRowIds.clone();
+    this.excludedRowIds = excludedRowIds.clone();
+    this.executor = executor;
+  }
+
+  @Override
+  public void subscribe(final Flow.Subscriber<? super Solution> subscriber) {
+    if (!subscribed.compareAndSet(false, true)) {
+      subscriber.onSubscribe(NO_SUBSCRIPTION);
+      subscriber.onError(new IllegalStateException("Solutions are already published to another subscriber"));
+      return;
+    }
+    SolutionSubscription subscription = new SolutionSubscription(subscriber);
+    subscriber.onSubscribe(subscription);
+    try {
+      executor.execute(subscription::run);
+    } catch (RejectedExecutionException e) {
+      subscription.cancelled = true;
+      subscriber.onError(e);
+    }
+  }
+}
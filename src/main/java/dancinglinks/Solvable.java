@@ -4,10 +4,33 @@ import static dancinglinks.Solver.Options.withLimit;
 
 import dancinglinks.Solver.Options;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 public interface Solvable<SolutionT> {
 
+  /**
+   * Solves every instance on the executor, returning their solutions in input order.
+   */
+  static <SolutionT> List<List<SolutionT>> solveAll(final Collection<? extends Solvable<SolutionT>> instances,
+                                                    final Options options,
+                                                    final Executor executor) {
+    return BatchSolver.builder().executor(executor).build().solve(instances, options).getSolutions();
+  }
+
+  default long count() {
+    return solve().size();
+  }
+
+  /**
+   * Returns a key shared by the instances that solve on the same matrix structure, which batch solving schedules
+   * together.
+   */
+  default Object getStructureKey() {
+    return getClass();
+  }
+
   default boolean hasSolutions() {
     return !solve(withLimit(1)).isEmpty();
   }
@@ -18,6 +41,13 @@ public interface Solvable<SolutionT> {
 
   List<SolutionT> solve(Options options);
 
+  /**
+   * Solves on the executor without blocking the caller; see {@link SolveFuture} for cancelling and stopping.
+   */
+  default SolveFuture<SolutionT> solveAsync(final Options options, final Executor executor) {
+    return SolveFuture.start(this, options, executor);
+  }
+
   default List<SolutionT> solve() {
     return solve(Options.builder().build());
   }
@@ -0,0 +1,64 @@
+package dancinglinks;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Solutions of an instance solved on an executor. Cancelling the future stops the search at its next step; stopping
+ * it instead completes the future with the solutions found so far.
+ *
+ * <p>Only this future controls the search: cancelling a stage derived from it does not stop anything.
+ *
+ * @param <SolutionT> solution of the instance
+ */
+public class SolveFuture<SolutionT> extends CompletableFuture<List<SolutionT>> {
+  private volatile boolean stopped;
+
+  SolveFuture() {
+  }
+
+  static <SolutionT> SolveFuture<SolutionT> start(final Solvable<SolutionT> solvable,
+                                                  final Solver.Options options,
+                                                  final Executor executor) {
+    SolveFuture<SolutionT> result = new SolveFuture<>();
+    Solver.Options searchOptions = options.toBuilder()
+                                          .cancellation(() -> result.stopped || options.isCancelled())
+                                          .build();
+    try {
+      executor.execute(() -> {
+        if (result.isDone()) {
+          return;
+        }
+        try {
+          result.complete(result.stopped ? newArrayList() : solvable.solve(searchOptions));
+        } catch (RuntimeException | Error e) {
+          result.completeExceptionally(e);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+
+  @Override
+  public boolean cancel(final boolean mayInterruptIfRunning) {
+    stopped = true;
+    return super.cancel(mayInterruptIfRunning);
+  }
+
+  public boolean isStopped() {
+    return stopped;
+  }
+
+  /**
+   * Stops the search, the future then completing with the solutions found so far.
+   */
+  public void stop() {
+    stopped = true;
+  }
+}
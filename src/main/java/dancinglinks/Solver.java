@@ -1,7 +1,10 @@
 package dancinglinks;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.ImmutableList.copyOf;
 import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Lists.reverse;
+import static java.util.Collections.emptyList;
 import static java.util.Comparator.comparing;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Stream.concat;
@@ -16,6 +19,8 @@ import java.io.PrintStream;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
@@ -37,9 +42,16 @@ public class Solver {
   }
 
   @Value
-  @Builder
+  @Builder(toBuilder = true)
   public static class Options {
 
+    /**
+     * Polled while searching: once it returns true the search stops, keeping the solutions found so far.
+     */
+    final BooleanSupplier cancellation;
+
+    final boolean cheapest;
+
     @Builder.Default
     @NonNull
     final ColumnSelector columnSelector = ColumnSelector.SMALLER;
@@ -48,10 +60,24 @@ public class Solver {
 
     final PrintStream logger;
 
+    final boolean reduce;
+
+    public static Options cheapestWithLimit(final int limit) {
+      return builder().cheapest(true).limit(limit).build();
+    }
+
     public static Options withLimit(final int limit) {
       return builder().limit(limit).build();
     }
 
+    public Optional<BooleanSupplier> getCancellation() {
+      return Optional.ofNullable(cancellation);
+    }
+
+    public boolean isCancelled() {
+      return cancellation != null && cancellation.getAsBoolean();
+    }
+
     public Optional<Integer> getLimit() {
       return Optional.ofNullable(limit);
     }
@@ -61,8 +87,182 @@ public class Solver {
     }
   }
 
+  /**
+   * Search state over one kind of links.
+   */
+  private class Search {
+    private final Runnable leaf;
+    private final ExactCover space;
+
+    Search(final ExactCover space, final Runnable leaf) {
+      this.space = space;
+      this.leaf = leaf;
+    }
+
+    private boolean isPruned(final double cost) {
+      double lowerBound = cost + space.getCostLowerBound();
+      return lowerBound > bestCost + COST_TOLERANCE ||
+        (lowerBound > bestCost - COST_TOLERANCE && isSolutionLimitReached());
+    }
+
+    private void saveCheapestSolution(final double cost) {
+      if (cost < bestCost - COST_TOLERANCE) {
+        solutions.clear();
+        solutionCount = 0;
+        bestCost = cost;
+      } else if (cost > bestCost + COST_TOLERANCE || isSolutionLimitReached()) {
+        return;
+      }
+      saveSolution();
+    }
+
+    private void saveSolution() {
+      solutionCount++;
+      leaf.run();
+    }
+
+    private boolean search(final int level, final double cost) {
+      boolean logging = options.getLogger().isPresent();
+      log("%s: searching level %s", level, level);
+      if (space.isEmpty()) {
+        if (logging) {
+          log("%s: *** found solution: %s with cost %s", level, space.getSolution().getRowNames(), cost);
+        }
+        if (options.isCheapest()) {
+          saveCheapestSolution(cost);
+          return false;
+        }
+        saveSolution();
+        return true;
+      }
+      if (options.isCheapest() && isPruned(cost)) {
+        log("%s: pruned with cost %s, best cost is %s", level, cost, bestCost);
+        return false;
+      }
+      if (logging) {
+        log("%s: available columns: %s", level, space.describeColumns());
+      }
+
+      space.chooseColumn(options.getColumnSelector());
+      if (logging) {
+        log("%s: choosed and covered column %s", level, space.describeLevel());
+      }
+
+      boolean stop = false;
+      while (!stop && space.nextRow()) {
+        if (logging) {
+          log("%s: trying row %s", level, space.describeLevel());
+        }
+        boolean found = search(level + 1, cost + space.getCost());
+        stop = found && isSolutionLimitReached() || options.isCancelled();
+      }
+
+      space.backtrack();
+      log("%s: uncovering column", level);
+      return stop;
+    }
+  }
+
+  /**
+   * The heap matrix seen by the search. The path starts with the rows selected before the search.
+   */
+  private static class NodeCover implements ExactCover {
+    private final List<Node> columns = newArrayList();
+    private final Matrix matrix;
+    private final List<Node> progress;
+
+    NodeCover(final Matrix matrix, final List<Node> selectedRows) {
+      this.matrix = matrix;
+      progress = newArrayList(selectedRows);
+    }
+
+    @Override
+    public void backtrack() {
+      Node column = columns.remove(columns.size() - 1);
+      Node node = progress.remove(progress.size() - 1);
+      if (node != column) {
+        uncoverRowColumns(node);
+      }
+      matrix.uncoverColumn(column);
+    }
+
+    @Override
+    public void chooseColumn(final ColumnSelector selector) {
+      Node column = selector == ColumnSelector.SMALLER ? matrix.getSmallestUncoveredPrimaryColumn()
+                                                       : selector.select(matrix.getUncoveredPrimaryColumns());
+      matrix.coverColumn(column);
+      columns.add(column);
+      progress.add(column);
+    }
+
+    @Override
+    public Object describeColumns() {
+      return matrix.getUncoveredPrimaryColumns() + " | " + matrix.getUncoveredSecondaryColumns();
+    }
+
+    @Override
+    public Object describeLevel() {
+      return progress.get(progress.size() - 1);
+    }
+
+    @Override
+    public double getCost() {
+      return progress.get(progress.size() - 1).getRowHeader().getCost();
+    }
+
+    @Override
+    public double getCostLowerBound() {
+      return matrix.getCostLowerBound();
+    }
+
+    @Override
+    public Solution getSolution() {
+      return Solver.getSolution(progress);
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return matrix.isEmpty();
+    }
+
+    @Override
+    public boolean nextRow() {
+      int level = progress.size() - 1;
+      Node node = progress.get(level);
+      Node column = columns.get(columns.size() - 1);
+      if (node != column) {
+        uncoverRowColumns(node);
+      }
+      Node next = node.getDown();
+      progress.set(level, next);
+      if (next == column) {
+        return false;
+      }
+      Node rowHeader = next.getRowHeader();
+      for (Node other = next.getRight(); other != next; other = other.getRight()) {
+        if (other != rowHeader) {
+          matrix.coverColumn(other.getColumnHeader());
+        }
+      }
+      return true;
+    }
+
+    private void uncoverRowColumns(final Node node) {
+      Node rowHeader = node.getRowHeader();
+      for (Node other = node.getLeft(); other != node; other = other.getLeft()) {
+        if (other != rowHeader) {
+          matrix.uncoverColumn(other.getColumnHeader());
+        }
+      }
+    }
+  }
+
+  private static final double COST_TOLERANCE = 1e-9;
+
+  private double bestCost;
   private final Matrix matrix;
   private final Options options;
+  private long solutionCount;
   private final List<Solution> solutions = newArrayList();
 
   public Solver(final Matrix matrix,
@@ -71,15 +271,56 @@ public class Solver {
     this.options = options;
   }
 
+  /**
+   * Creates a solver for links other than a heap {@link Matrix}, searched with {@link #forEach(ExactCover, Consumer)}.
+   */
+  Solver(final Options options) {
+    this(null, options);
+  }
+
   public List<Solution> solve() {
-    log("Solving with %s", options);
+    return solve(emptyList());
+  }
+
+  public List<Solution> solve(final List<Node> forcedRows) {
+    return solve(forcedRows, emptyList());
+  }
+
+  /**
+   * Counts the solutions without building them.
+   */
+  public long count(final List<Node> forcedRows, final List<Node> excludedRows) {
+    checkArgument(!options.isCheapest(), "Cheapest solutions can not be counted");
+    return search(forcedRows, excludedRows, cover -> { });
+  }
+
+  /**
+   * Hands every solution to the consumer as soon as it is found instead of keeping them, returning their count.
+   */
+  public long forEach(final List<Node> forcedRows, final List<Node> excludedRows, final Consumer<Solution> consumer) {
+    checkArgument(!options.isCheapest(), "Cheapest solutions can not be streamed");
+    return search(forcedRows, excludedRows, cover -> consumer.accept(cover.getSolution()));
+  }
+
+  /**
+   * Searches the links from the rows they already hold selected, handing every solution to the consumer, returning
+   * their count.
+   */
+  long forEach(final ExactCover space, final Consumer<Solution> consumer) {
+    checkArgument(!options.isCheapest(), "Cheapest solutions can not be streamed");
+    solutionCount = 0;
+    bestCost = Double.POSITIVE_INFINITY;
+    new Search(space, () -> consumer.accept(space.getSolution())).search(0, 0);
+    return solutionCount;
+  }
+
+  public List<Solution> solve(final List<Node> forcedRows, final List<Node> excludedRows) {
     solutions.clear();
-    search(newArrayList());
+    search(forcedRows, excludedRows, cover -> solutions.add(cover.getSolution()));
     return copyOf(solutions);
   }
 
-  private Solution getSolution(final List<Node> progress) {
-
+  private static Solution getSolution(final List<Node> progress) {
     return new Solution(progress.stream()
                                 .map(node -> concat(Stream.of(node),
                                                     node.getAll(Node::getRight).stream())
@@ -88,60 +329,60 @@ public class Solver {
                                 .collect(toList()));
   }
 
-  private void log(final String message, final Object... args) {
-    options.getLogger()
-           .ifPresent(out -> out.printf(message + "%n", args));
-  }
+  private long search(final List<Node> forcedRows, final List<Node> excludedRows, final Consumer<ExactCover> leaf) {
+    log("Solving with %s forcing rows %s excluding rows %s", options, forcedRows, excludedRows);
+    solutionCount = 0;
+    bestCost = Double.POSITIVE_INFINITY;
+    Reduction exclusion = matrix.excludeRows(excludedRows);
 
-  private void saveSolution(final List<Node> progress) {
-    solutions.add(getSolution(progress));
-  }
-
-  private boolean search(final List<Node> progress) {
-    int level = progress.size();
-    log("%s: searching level %s", level, level);
-    if (matrix.isEmpty()) {
-      log("%s: *** found solution: %s", level, progress);
-      saveSolution(progress);
-      return true;
+    List<Node> selectedRows = newArrayList();
+    for (Node rowHeader : forcedRows) {
+      if (!matrix.isUncoveredRow(rowHeader)) {
+        log("Forced row %s conflicts with %s", rowHeader, selectedRows);
+        break;
+      }
+      matrix.selectRow(rowHeader);
+      selectedRows.add(rowHeader);
     }
-    log("%s: available columns: %s | %s", level, matrix.getUncoveredPrimaryColumns(), matrix.getUncoveredSecondaryColumns());
 
-    Node column = options.getColumnSelector().select(matrix.getUncoveredPrimaryColumns());
-    matrix.coverColumn(column);
-    log("%s: choosed and covered column %s", level, column);
+    if (selectedRows.size() == forcedRows.size()) {
+      double cost = selectedRows.stream().mapToDouble(Node::getCost).sum();
+      if (options.isReduce()) {
+        solveReduced(selectedRows, cost, leaf);
+      } else {
+        search(new NodeCover(matrix, selectedRows), cost, leaf);
+      }
+    }
 
-    for (Node rowNode : column.getAll(Node::getDown)) {
-      progress.add(rowNode);
-      log("%s: adding %s to progress", level, rowNode);
+    reverse(selectedRows).forEach(matrix::unselectRow);
+    exclusion.undo();
+    return solutionCount;
+  }
 
-      for (Node node : rowNode.getAll(Node::getRight)) {
-        if (!node.equals(rowNode.getRowHeader())) {
-          matrix.coverColumn(node.getColumnHeader());
-        }
-      }
+  private boolean isSolutionLimitReached() {
+    return options.getLimit()
+                  .map(it -> it <= solutionCount)
+                  .orElse(false);
+  }
 
-      boolean found = search(progress);
-      Boolean reachedSolutionLimit = options.getLimit()
-                                            .map(it -> it <= solutions.size())
-                                            .orElse(false);
-      if (found && reachedSolutionLimit) {
-        return true;
-      }
+  private void log(final String message, final Object... args) {
+    options.getLogger()
+           .ifPresent(out -> out.printf(message + "%n", args));
+  }
 
-      progress.remove(rowNode);
-      log("%s: removing %s from progress", level, rowNode);
+  private void search(final NodeCover cover, final double cost, final Consumer<ExactCover> leaf) {
+    new Search(cover, () -> leaf.accept(cover)).search(0, cost);
+  }
 
-      for (Node node : rowNode.getAll(Node::getLeft)) {
-        if (!node.equals(rowNode.getRowHeader())) {
-          matrix.uncoverColumn(node.getColumnHeader());
-        }
-      }
+  private void solveReduced(final List<Node> selectedRows, final double cost, final Consumer<ExactCover> leaf) {
+    Reduction reduction = matrix.reduce();
+    log("Reduced matrix forcing rows %s and removing rows %s", reduction.getForcedRows(), reduction.getRemovedRows());
+    if (!reduction.isInfeasible()) {
+      List<Node> selected = newArrayList(selectedRows);
+      selected.addAll(reduction.getForcedRows());
+      search(new NodeCover(matrix, selected), cost + reduction.getForcedCost(), leaf);
     }
-
-    matrix.uncoverColumn(column);
-    log("%s: uncovering column %s", level, column);
-    return false;
+    reduction.undo();
   }
 
 }
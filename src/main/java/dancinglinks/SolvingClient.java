@@ -0,0 +1,126 @@
+package dancinglinks;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Lists.newArrayList;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonList;
+
+import com.google.common.base.Splitter;
+import com.google.common.primitives.Ints;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Connection to a {@link SolvingServer} on this host. Requests use the server's line format; a request answered with
+ * an error fails with an {@link IllegalArgumentException} carrying the server's message.
+ */
+public class SolvingClient implements Closeable {
+  private int nextIndex;
+  private final BufferedReader reader;
+  private final Socket socket;
+  private final BufferedWriter writer;
+
+  public SolvingClient(final int port) throws IOException {
+    socket = new Socket(InetAddress.getLoopbackAddress(), port);
+    reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), UTF_8));
+    writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), UTF_8));
+  }
+
+  @Override
+  public void close() throws IOException {
+    socket.close();
+  }
+
+  public List<String> solve(final String request) {
+    return solveAll(singletonList(request)).get(0);
+  }
+
+  /**
+   * Hands every answer to the consumer as soon as it arrives, returning their count.
+   */
+  public synchronized long solve(final String request, final Consumer<String> consumer) {
+    send(singletonList(request));
+    return receive(1, (index, answer) -> consumer.accept(answer))[0];
+  }
+
+  /**
+   * Sends all the requests at once, so that the server may batch them, returning their answers in request order.
+   */
+  public synchronized List<List<String>> solveAll(final List<String> requests) {
+    List<List<String>> result = newArrayList();
+    requests.forEach(request -> result.add(newArrayList()));
+    send(requests);
+    receive(requests.size(), (index, answer) -> result.get(index).add(answer));
+    return result;
+  }
+
+  @FunctionalInterface
+  private interface AnswerConsumer {
+    void accept(int index, String answer);
+  }
+
+  /**
+   * Reads answers until {@code count} requests are done, returning their solution counts. An error fails once every
+   * request is done, so that the connection stays usable.
+   */
+  private long[] receive(final int count, final AnswerConsumer consumer) {
+    int firstIndex = nextIndex;
+    nextIndex += count;
+    long[] result = new long[count];
+    String error = null;
+    try {
+      for (int done = 0; done < count; ) {
+        String line = reader.readLine();
+        checkState(line != null, "Connection closed by the server");
+        List<String> parts = Splitter.on(' ').limit(3).splitToList(line);
+        Integer index = Ints.tryParse(parts.get(0));
+        checkState(parts.size() >= 2 && index != null && index >= firstIndex && index < nextIndex, "Unexpected answer %s", line);
+        String value = parts.size() > 2 ? parts.get(2) : "";
+        switch (parts.get(1)) {
+          case "solution":
+            consumer.accept(index - firstIndex, value);
+            break;
+          case "done":
+            result[index - firstIndex] = Long.parseLong(value);
+            done++;
+            break;
+          case "error":
+            error = error == null ? value : error;
+            done++;
+            break;
+          default:
+            throw new IllegalStateException("Unexpected answer " + line);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    checkArgument(error == null, error);
+    return result;
+  }
+
+  private void send(final List<String> requests) {
+    requests.forEach(request -> checkArgument(request.indexOf('\n') < 0 && !request.trim().isEmpty(),
+                                              "Invalid request %s", request));
+    try {
+      for (String request : requests) {
+        writer.write(request);
+        writer.write('\n');
+      }
+      writer.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,359 @@
+package dancinglinks;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Lists.newArrayList;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.joining;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.primitives.Ints;
+import lombok.Builder;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Solves puzzles for local processes over loopback TCP, keeping its compiled matrices warm across requests.
+ *
+ * <p>A connection sends one request per line, {@code <kind> <limit|all> <payload>}, with these kinds:
+ * <ul>
+ * <li>{@code sudoku}: a puzzle line as read by {@link Sudoku#parseLine}; answers are solved lines.</li>
+ * <li>{@code nqueen}: a board size, or rows of {@code '.'} and {@code 'X'} separated by {@code '/'}; answers are the
+ * 1-based queen column of every row.</li>
+ * <li>{@code matrix}: boolean matrix lines separated by {@code '/'}, header first, as read by
+ * {@link MatrixBuilder#fromBooleanMatrix}; answers are the row names of the cover.</li>
+ * </ul>
+ * The server answers with lines tagged by the 0-based index of the request on its connection, {@code <index> solution
+ * <answer>} as soon as a solution is found, then {@code <index> done <count>}, or {@code <index> error <message>}.
+ * Answers to pipelined requests may interleave.
+ *
+ * <p>Requests of every connection go to one queue. A worker takes the oldest request together with up to
+ * {@code batchSize - 1} waiting requests of the same structure, solving them one after the other on its cached
+ * matrices; requests of other structures stay queued for the other workers.
+ */
+@Builder
+public class SolvingServer {
+
+  /**
+   * Server accepting connections until closed.
+   */
+  public class Running implements Closeable {
+    private final AtomicLong batchCount = new AtomicLong();
+    private volatile boolean closed;
+    private final ExecutorService connections = Executors.newCachedThreadPool();
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+    private final BlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final ServerSocket serverSocket;
+    private final ExecutorService workers = Executors.newFixedThreadPool(threads);
+
+    Running() throws IOException {
+      serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+      connections.execute(this::accept);
+      for (int i = 0; i < threads; i++) {
+        workers.execute(this::work);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      closed = true;
+      serverSocket.close();
+      for (Socket socket : openSockets) {
+        socket.close();
+      }
+      connections.shutdownNow();
+      workers.shutdownNow();
+    }
+
+    /**
+     * Returns the number of batches taken by the workers so far.
+     */
+    public long getBatchCount() {
+      return batchCount.get();
+    }
+
+    public int getPort() {
+      return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the number of requests received so far.
+     */
+    public long getRequestCount() {
+      return requestCount.get();
+    }
+
+    private void accept() {
+      while (!closed) {
+        try {
+          Socket socket = serverSocket.accept();
+          openSockets.add(socket);
+          connections.execute(() -> serve(socket));
+        } catch (IOException e) {
+          if (!closed) {
+            throw new UncheckedIOException(e);
+          }
+        }
+      }
+    }
+
+    private void serve(final Socket socket) {
+      try (BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), UTF_8))) {
+        Connection connection = new Connection(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), UTF_8)));
+        int index = 0;
+        for (String line = reader.readLine(); line != null && !closed; line = reader.readLine()) {
+          if (line.trim().isEmpty()) {
+            continue;
+          }
+          requestCount.incrementAndGet();
+          try {
+            Task task = parse(index, connection, line.trim());
+            connection.started();
+            queue.put(task);
+          } catch (RuntimeException e) {
+            connection.write(index + " error " + getMessage(e));
+          }
+          index++;
+        }
+        connection.awaitFinished();
+      } catch (IOException e) {
+        // Connection closed by the client
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        openSockets.remove(socket);
+        try {
+          socket.close();
+        } catch (IOException e) {
+          // Already closed
+        }
+      }
+    }
+
+    /**
+     * Takes the oldest request and the waiting ones of the same structure, up to {@code batchSize} in all.
+     */
+    private List<Task> takeBatch() throws InterruptedException {
+      Task first = queue.take();
+      List<Task> result = newArrayList(first);
+      for (Task task : queue) {
+        if (result.size() == batchSize) {
+          break;
+        }
+        if (task.getStructureKey().equals(first.getStructureKey()) && queue.remove(task)) {
+          result.add(task);
+        }
+      }
+      return result;
+    }
+
+    private void work() {
+      Cache<String, Matrix> matrices = CacheBuilder.newBuilder().maximumSize(matrixCacheSize).build();
+      try {
+        while (!closed) {
+          List<Task> batch = takeBatch();
+          batchCount.incrementAndGet();
+          batch.forEach(task -> task.run(matrices, () -> closed));
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface Job {
+    long run(Solver.Options options, Cache<String, Matrix> matrices, Consumer<String> consumer) throws ExecutionException;
+  }
+
+  /**
+   * Answer stream of a client. Writes are flushed line by line, so that solutions reach the client as they are found;
+   * once a write fails the connection is marked closed, which stops its running searches.
+   */
+  private static class Connection {
+    private volatile boolean closed;
+    private int pending;
+    private final BufferedWriter writer;
+
+    Connection(final BufferedWriter writer) {
+      this.writer = writer;
+    }
+
+    synchronized void awaitFinished() throws InterruptedException {
+      while (pending > 0) {
+        wait();
+      }
+    }
+
+    synchronized void finished() {
+      pending--;
+      notifyAll();
+    }
+
+    synchronized void started() {
+      pending++;
+    }
+
+    synchronized void write(final String line) {
+      if (closed) {
+        return;
+      }
+      try {
+        writer.write(line);
+        writer.write('\n');
+        writer.flush();
+      } catch (IOException e) {
+        closed = true;
+      }
+    }
+  }
+
+  private static class Task {
+    final Connection connection;
+    final int index;
+    final Job job;
+    final Integer limit;
+    final Object structureKey;
+
+    Task(final int index, final Connection connection, final Integer limit, final Object structureKey, final Job job) {
+      this.index = index;
+      this.connection = connection;
+      this.limit = limit;
+      this.structureKey = structureKey;
+      this.job = job;
+    }
+
+    Object getStructureKey() {
+      return structureKey;
+    }
+
+    void run(final Cache<String, Matrix> matrices, final BooleanSupplier serverClosed) {
+      Solver.Options options = Solver.Options.builder()
+                                             .limit(limit)
+                                             .cancellation(() -> connection.closed || serverClosed.getAsBoolean())
+                                             .build();
+      try {
+        long count = job.run(options, matrices, answer -> connection.write(index + " solution " + answer));
+        connection.write(index + " done " + count);
+      } catch (ExecutionException | RuntimeException e) {
+        connection.write(index + " error " + getMessage(e));
+      } finally {
+        connection.finished();
+      }
+    }
+  }
+
+  private static final String ALL = "all";
+  private static final Splitter ROW_SPLITTER = Splitter.on('/').trimResults().omitEmptyStrings();
+
+  @Builder.Default
+  private final int batchSize = 32;
+
+  @Builder.Default
+  private final int matrixCacheSize = 64;
+
+  /**
+   * Port to listen on, 0 picking a free one.
+   */
+  private final int port;
+
+  @Builder.Default
+  private final int threads = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * Usage: {@code [port]}, serving until the process is stopped.
+   */
+  public static void main(final String[] args) throws IOException {
+    Running server = builder().port(args.length > 0 ? Integer.parseInt(args[0]) : 0).build().start();
+    System.err.printf("Solving on port %d%n", server.getPort());
+  }
+
+  private static String format(final NQueen solution) {
+    return solution.getExistingValues()
+                   .stream()
+                   .sorted()
+                   .map(cell -> String.valueOf(cell.getColumn()))
+                   .collect(joining(" "));
+  }
+
+  private static String getMessage(final Exception exception) {
+    Throwable cause = Throwables.getRootCause(exception);
+    return String.valueOf(cause.getMessage() == null ? cause : cause.getMessage()).replace('\n', ' ');
+  }
+
+  private static Integer parseLimit(final String value) {
+    if (value.equals(ALL)) {
+      return null;
+    }
+    Integer result = Ints.tryParse(value);
+    checkArgument(result != null && result > 0, "Invalid limit %s, expected a positive count or %s", value, ALL);
+    return result;
+  }
+
+  private static NQueen parseNQueen(final String payload) {
+    Integer size = Ints.tryParse(payload);
+    if (size != null) {
+      checkArgument(size > 0, "Invalid board size %s", size);
+      return new NQueen(size);
+    }
+    return NQueen.parse(ROW_SPLITTER.splitToList(payload));
+  }
+
+  private static Task parse(final int index, final Connection connection, final String line) {
+    List<String> parts = Splitter.on(' ').limit(3).splitToList(line);
+    checkArgument(parts.size() == 3, "Invalid request %s, expected <kind> <limit|all> <payload>", line);
+    Integer limit = parseLimit(parts.get(1));
+    String payload = parts.get(2).trim();
+    switch (parts.get(0)) {
+      case "sudoku": {
+        Sudoku puzzle = Sudoku.parseLine(payload);
+        return new Task(index, connection, limit, puzzle.getStructureKey(), (options, matrices, consumer) ->
+          puzzle.forEach(options, solution -> consumer.accept(solution.toLineString())));
+      }
+      case "nqueen": {
+        NQueen board = parseNQueen(payload);
+        return new Task(index, connection, limit, board.getStructureKey(), (options, matrices, consumer) ->
+          ModelSolver.forEach(board.toModel(), options, solution -> consumer.accept(format(solution))));
+      }
+      case "matrix": {
+        List<String> lines = ROW_SPLITTER.splitToList(payload);
+        checkArgument(lines.size() > 1, "Matrix %s has no row", payload);
+        return new Task(index, connection, limit, payload, (options, matrices, consumer) -> {
+          Matrix matrix = matrices.get(payload, () -> MatrixBuilder.fromBooleanMatrix(lines));
+          return matrix.forEach(options, new int[0], new int[0], solution -> consumer.accept(String.join(" ", solution.getRowNames())));
+        });
+      }
+      default:
+        throw new IllegalArgumentException("Unknown kind " + parts.get(0) + ", expected sudoku, nqueen or matrix");
+    }
+  }
+
+  public Running start() throws IOException {
+    checkArgument(batchSize > 0, "Batch size %s should be positive", batchSize);
+    checkArgument(threads > 0, "Thread count %s should be positive", threads);
+    return new Running();
+  }
+}
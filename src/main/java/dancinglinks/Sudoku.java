@@ -13,6 +13,7 @@ import static java.lang.System.lineSeparator;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
+import static java.util.stream.IntStream.range;
 import static java.util.stream.IntStream.rangeClosed;
 import static java.util.stream.Stream.concat;
 
@@ -29,14 +30,16 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
-@EqualsAndHashCode(of = {"size", "alphabeth", "existingValues"})
+@EqualsAndHashCode(of = {"size", "alphabeth", "grid"})
 public class Sudoku implements Solvable<Sudoku> {
   @Value
   @AllArgsConstructor
@@ -70,6 +73,7 @@ public class Sudoku implements Solvable<Sudoku> {
   }
 
   public static class ConstraintsGenerator {
+    private static final Pattern ROW_NAME_PATTERN = Pattern.compile("r(\\d+)c(\\d+)#(\\w+)");
 
     private final List<Cell> allPossibleCells;
     private final List<Function<Cell, String>> cellConstraintFormaters;
@@ -105,8 +109,7 @@ public class Sudoku implements Solvable<Sudoku> {
     }
 
     public Cell parseRowName(final String name) {
-      Pattern compile = Pattern.compile("r(\\d+)c(\\d+)#(\\w+)");
-      Matcher matcher = compile.matcher(name);
+      Matcher matcher = ROW_NAME_PATTERN.matcher(name);
       checkState(matcher.matches(), "Unable to parse row name '%s'", name);
       String value = matcher.group(3);
       return new Cell(Integer.parseInt(matcher.group(1)),
@@ -142,8 +145,8 @@ public class Sudoku implements Solvable<Sudoku> {
       return format("R%d#%s", cell.getRow(), cell.getValue());
     }
 
-    private String formatRowName(final Cell cell) {
-      return format("r%dc%d#%s", cell.getRow(), cell.getColumn(), cell.getValue()) + ':';
+    static String formatRowName(final Cell cell) {
+      return format("r%dc%d#%s", cell.getRow(), cell.getColumn(), cell.getValue());
     }
 
     private String formatSectorConstraint(final Cell cell) {
@@ -160,7 +163,7 @@ public class Sudoku implements Solvable<Sudoku> {
     private String generate(final Cell cell) {
       Stream<String> cellConstraints = cellConstraintFormaters.stream().map(it -> it.apply(cell));
 
-      return concat(Stream.of(formatRowName(cell)),
+      return concat(Stream.of(formatRowName(cell) + ':'),
                     cellConstraints).collect(joining(" "));
 
     }
@@ -197,11 +200,95 @@ public class Sudoku implements Solvable<Sudoku> {
     }
   }
 
-  private static final List<String> DEFAULT_ALPHABETH = Arrays.asList("123456789ABCDEFGHIJKLMNOPQRSTUVZ".split(""));
+  private class Model implements ConstraintModel<Sudoku> {
+    private final int boxSize = (int) sqrt(size);
+    private final int cellCount = size * size;
+    private final int[] excludedRowIds;
+    private final int[] forcedRowIds;
+    private final boolean infeasible;
+    private final boolean withBoxes = boxSize * boxSize == size;
+
+    Model() {
+      int[] values = getValues();
+      IntStream.Builder forced = IntStream.builder();
+      IntStream.Builder excluded = IntStream.builder();
+      long[] candidates = size <= Long.SIZE ? new SudokuPresolver(size).presolve(values) : null;
+      if (candidates != null) {
+        for (int cell = 0; cell < candidates.length; cell++) {
+          boolean placed = Long.bitCount(candidates[cell]) == 1;
+          for (int value = 0; value < size; value++) {
+            boolean candidate = (candidates[cell] >>> value & 1) != 0;
+            if (placed == candidate) {
+              (placed ? forced : excluded).add(cell * size + value);
+            }
+          }
+        }
+      } else {
+        range(0, values.length).filter(cell -> values[cell] > 0).forEach(cell -> forced.add(cell * size + values[cell] - 1));
+      }
+      infeasible = size <= Long.SIZE && candidates == null;
+      forcedRowIds = forced.build().toArray();
+      excludedRowIds = excluded.build().toArray();
+    }
+
+    @Override
+    public Sudoku decode(final int[] rowIds) {
+      return fromRowIds(rowIds);
+    }
+
+    @Override
+    public void generateRows(final Rows rows) {
+      for (int row = 0; row < size; row++) {
+        for (int column = 0; column < size; column++) {
+          int cell = row * size + column;
+          int box = withBoxes ? (row / boxSize) * boxSize + column / boxSize : 0;
+          for (int value = 0; value < size; value++) {
+            int rowConstraint = cellCount + row * size + value;
+            int columnConstraint = 2 * cellCount + column * size + value;
+            int[] columnIds = withBoxes ? new int[] {cell, rowConstraint, columnConstraint, 3 * cellCount + box * size + value}
+                                        : new int[] {cell, rowConstraint, columnConstraint};
+            rows.add(cell * size + value, columnIds);
+          }
+        }
+      }
+    }
+
+    @Override
+    public int[] getExcludedRowIds() {
+      return excludedRowIds;
+    }
+
+    @Override
+    public int[] getForcedRowIds() {
+      return forcedRowIds;
+    }
+
+    @Override
+    public int getPrimaryColumnCount() {
+      return (withBoxes ? 4 : 3) * cellCount;
+    }
+
+    @Override
+    public Object getTemplateKey() {
+      return size;
+    }
+
+    @Override
+    public boolean isInfeasible() {
+      return infeasible;
+    }
+  }
+
+  private static final List<String> DEFAULT_ALPHABETH = Arrays.asList("123456789ABCDEFGHIJKLMNOPQRSTUVZWXYabcdefghijklmnopqrstuvwxyz".split(""));
   private static final String EMPTY_SYMBOL = ".";
+  private static final char LINE_EMPTY_SYMBOL = '0';
+  private static final Map<Integer, SudokuMaskSolver> MASK_SOLVERS = new ConcurrentHashMap<>();
   @Getter
   private final List<String> alphabeth;
-  private final Map<Coordinates, Cell> existingValues;
+  /**
+   * Row-major symbol indexes, 1-based in the sorted alphabeth, with 0 for an empty cell.
+   */
+  private final byte[] grid;
   @Getter
   private final int size;
 
@@ -212,13 +299,29 @@ public class Sudoku implements Solvable<Sudoku> {
   public Sudoku(final int size, List<Cell> existingValues, Collection<String> alphabeth) {
     checkArgument(alphabeth.size() >= size,
                   "Current alpabeth [%s] should contain at least %s symbols", alphabeth, size);
+    checkArgument(size <= Byte.MAX_VALUE, "Size %s is larger than %s", size, Byte.MAX_VALUE);
     this.size = size;
     this.alphabeth = alphabeth.stream()
                               .limit(size)
                               .sorted()
                               .collect(toList());
 
-    this.existingValues = Maps.uniqueIndex(existingValues, Cell::getCoordinates);
+    grid = new byte[size * size];
+    existingValues.forEach(cell -> {
+      checkArgument(cell.getRow() >= 1 && cell.getRow() <= size && cell.getColumn() >= 1 && cell.getColumn() <= size,
+                    "Cell %s is outside of the board", cell.getCoordinates());
+      int index = (cell.getRow() - 1) * size + cell.getColumn() - 1;
+      checkArgument(grid[index] == 0, "Cell %s has more than one value", cell.getCoordinates());
+      int value = this.alphabeth.indexOf(cell.getValue()) + 1;
+      checkArgument(value > 0, "Symbol %s is not part of the alphabeth %s", cell.getValue(), this.alphabeth);
+      grid[index] = (byte) value;
+    });
+  }
+
+  private Sudoku(final int size, final byte[] grid, final List<String> alphabeth) {
+    this.size = size;
+    this.grid = grid;
+    this.alphabeth = alphabeth;
   }
 
   public static Sudoku parse(final List<String> input) {
@@ -241,6 +344,50 @@ public class Sudoku implements Solvable<Sudoku> {
     return new Sudoku(size, cells, inferAlphabet(size, input));
   }
 
+  /**
+   * Parses a board written on a single line, row after row. Boards up to 9x9 may also use {@code 0} for empty cells.
+   */
+  public static Sudoku parseLine(final String line) {
+    int size = (int) sqrt(line.length());
+    checkArgument(size > 0 && size * size == line.length(), "Line of length %s is not a square board", line.length());
+    String board = size <= 9 ? line.replace(LINE_EMPTY_SYMBOL, EMPTY_SYMBOL.charAt(0)) : line;
+    return parse(range(0, size).mapToObj(row -> board.substring(row * size, (row + 1) * size)).collect(toList()));
+  }
+
+  static Sudoku fromValues(final int size, final int[] values) {
+    return fromValues(size, values, DEFAULT_ALPHABETH.stream().limit(size).sorted().collect(toList()));
+  }
+
+  static Sudoku fromValues(final int size, final int[] values, final List<String> alphabeth) {
+    byte[] grid = new byte[values.length];
+    for (int cell = 0; cell < values.length; cell++) {
+      grid[cell] = (byte) values[cell];
+    }
+    return new Sudoku(size, grid, alphabeth);
+  }
+
+  /**
+   * Parses a board of whitespace separated numbers, where {@code 0} or {@code .} marks an empty cell. Suits boards
+   * larger than the default alphabeth.
+   */
+  public static Sudoku parseNumeric(final List<String> input) {
+    int size = input.size();
+    List<Cell> cells = newLinkedList();
+    for (int rowIndex = 1; rowIndex <= size; rowIndex++) {
+      String[] tokens = input.get(rowIndex - 1).trim().split("\\s+");
+      checkArgument(tokens.length == size, "Expected row %s to have size %s but it has size %s", rowIndex, size, tokens.length);
+      for (int columnIndex = 1; columnIndex <= size; columnIndex++) {
+        String token = tokens[columnIndex - 1];
+        int value = token.equals(EMPTY_SYMBOL) ? 0 : Integer.parseInt(token);
+        checkArgument(value >= 0 && value <= size, "Value %s at row %s is out of range", token, rowIndex);
+        if (value > 0) {
+          cells.add(new Cell(rowIndex, columnIndex, String.valueOf(value)));
+        }
+      }
+    }
+    return new Sudoku(size, cells, rangeClosed(1, size).mapToObj(String::valueOf).collect(toList()));
+  }
+
   private static Collection<String> inferAlphabet(final int size, final List<String> input) {
     Set<String> seen = input.stream()
                             .flatMap(line -> Arrays.stream(line.split("")))
@@ -259,28 +406,79 @@ public class Sudoku implements Solvable<Sudoku> {
     return result;
   }
 
+  private static boolean usesMatrixOptions(final Solver.Options options) {
+    return options.isCheapest() || options.isReduce() || options.getLogger().isPresent();
+  }
+
+  /**
+   * Grids of the same size and alphabeth share their matrix.
+   */
+  @Override
+  public Object getStructureKey() {
+    return Arrays.asList(size, alphabeth);
+  }
+
+  @Override
+  public long count() {
+    return count(Solver.Options.builder().build());
+  }
+
+  /**
+   * Counts the solutions up to the limit of the options without keeping them.
+   */
+  public long count(final Solver.Options options) {
+    if (SudokuMaskSolver.supports(size) && !usesMatrixOptions(options)) {
+      SudokuMaskSolver solver = MASK_SOLVERS.computeIfAbsent(size, SudokuMaskSolver::new);
+      return solver.forEach(getValues(), options.getLimit().orElse(Integer.MAX_VALUE), options::isCancelled, values -> { });
+    }
+    return ModelSolver.count(toModel(), options);
+  }
+
+  /**
+   * Hands every solution to the consumer as soon as it is found, returning their count.
+   */
+  public long forEach(final Solver.Options options, final Consumer<Sudoku> consumer) {
+    if (SudokuMaskSolver.supports(size) && !usesMatrixOptions(options)) {
+      SudokuMaskSolver solver = MASK_SOLVERS.computeIfAbsent(size, SudokuMaskSolver::new);
+      return solver.forEach(getValues(), options.getLimit().orElse(Integer.MAX_VALUE), options::isCancelled,
+                            values -> consumer.accept(fromValues(size, values, alphabeth)));
+    }
+    return ModelSolver.forEach(toModel(), options, consumer);
+  }
+
   public List<Sudoku> solve(final Solver.Options options) {
-    ConstraintsGenerator constraintsGenerator = new ConstraintsGenerator(size, existingValues.values(), alphabeth);
-    Function<Solution, Sudoku> solutionParser = solution -> new Sudoku(size,
-                                                                       solution.getRowNames()
-                                                                               .stream()
-                                                                               .map(constraintsGenerator::parseRowName)
-                                                                               .collect(toList()),
-                                                                       alphabeth);
-    return MatrixBuilder.withConstraintsLines(constraintsGenerator.generate())
-                        .solve(options)
-                        .stream()
-                        .map(solutionParser)
-                        .collect(toList());
+    return SudokuMaskSolver.supports(size) && !usesMatrixOptions(options) ? solveWithMasks(options) : solveWithMatrix(options);
+  }
+
+  List<Sudoku> solveWithMasks(final Solver.Options options) {
+    SudokuMaskSolver solver = MASK_SOLVERS.computeIfAbsent(size, SudokuMaskSolver::new);
+    return solver.solve(getValues(), options.getLimit().orElse(Integer.MAX_VALUE), options::isCancelled)
+                 .stream()
+                 .map(values -> fromValues(size, values, alphabeth))
+                 .collect(toList());
+  }
+
+  List<Sudoku> solveWithMatrix(final Solver.Options options) {
+    return ModelSolver.solve(toModel(), options);
+  }
+
+  /**
+   * Returns the integer model of the board: row id {@code cell * size + value}, primary columns for the cells, then
+   * the values of every row, column and, for square sizes, box. Cells set by the givens or the presolver are forced
+   * rows and the candidates it eliminates are excluded rows.
+   */
+  public ConstraintModel<Sudoku> toModel() {
+    return new Model();
+  }
+
+  public String toLineString() {
+    return rangeClosed(1, size).mapToObj(this::formatRow).collect(joining(getSymbolSeparator()));
   }
 
   public Object toPrettyString() {
     return getClass().getSimpleName() + ": size " + size + "x" + size + lineSeparator() +
       rangeClosed(1, size)
-        .mapToObj(rowIndex -> getRow(rowIndex).map(cell -> cell.map(Cell::getValue)
-                                                               .map(Object::toString)
-                                                               .orElse(EMPTY_SYMBOL))
-                                              .collect(joining("")))
+        .mapToObj(this::formatRow)
         .collect(joining(lineSeparator()));
   }
 
@@ -288,16 +486,41 @@ public class Sudoku implements Solvable<Sudoku> {
   public String toString() {
     return MoreObjects.toStringHelper(this)
                       .add("alphabeth", alphabeth)
-                      .add("existingValues", existingValues)
                       .add("size", size)
                       .add("matrix", toPrettyString())
                       .toString();
   }
 
-  private Stream<Optional<Cell>> getRow(final int rowIndex) {
-    return rangeClosed(1, size).mapToObj(
-      columnIndex -> Optional.ofNullable(existingValues.get(new Coordinates(rowIndex, columnIndex))));
+  private String getSymbolSeparator() {
+    return alphabeth.stream().anyMatch(symbol -> symbol.length() > 1) ? " " : "";
+  }
 
+  private int[] getValues() {
+    int[] result = new int[grid.length];
+    for (int cell = 0; cell < grid.length; cell++) {
+      result[cell] = grid[cell];
+    }
+    return result;
+  }
+
+  private String formatRow(final int rowIndex) {
+    String separator = getSymbolSeparator();
+    StringBuilder result = new StringBuilder();
+    for (int cell = (rowIndex - 1) * size; cell < rowIndex * size; cell++) {
+      if (result.length() > 0) {
+        result.append(separator);
+      }
+      result.append(grid[cell] == 0 ? EMPTY_SYMBOL : alphabeth.get(grid[cell] - 1));
+    }
+    return result.toString();
+  }
+
+  private Sudoku fromRowIds(final int[] rowIds) {
+    byte[] result = new byte[grid.length];
+    for (int rowId : rowIds) {
+      result[rowId / size] = (byte) (rowId % size + 1);
+    }
+    return new Sudoku(size, result, alphabeth);
   }
 
 }
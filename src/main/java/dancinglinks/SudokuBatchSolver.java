@@ -0,0 +1,191 @@
+package dancinglinks;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Lists.newArrayListWithCapacity;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+
+import com.google.common.base.Stopwatch;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Solves puzzles written one per line, in parallel, writing one answer line per input line in input order; blank
+ * lines are answered with blank lines, invalid puzzles with {@code invalid} and puzzles whose solving fails with
+ * {@code error <message>}, without failing the other lines.
+ */
+@Builder
+public class SudokuBatchSolver {
+  public enum Mode {
+    /**
+     * Writes the first solution found, or {@code none}.
+     */
+    FIRST,
+    /**
+     * Writes the solution when it is unique, otherwise {@code none} or {@code multiple}.
+     */
+    UNIQUE,
+    /**
+     * Writes the number of solutions, up to {@code countLimit}.
+     */
+    COUNT
+  }
+
+  @Value
+  public static class Report {
+    final Duration elapsed;
+    final long puzzles;
+
+    public double getPuzzlesPerSecond() {
+      return puzzles * 1e9 / Math.max(1, elapsed.toNanos());
+    }
+  }
+
+  private static final String ERROR = "error";
+  private static final String INVALID = "invalid";
+  private static final String MULTIPLE = "multiple";
+  private static final String NONE = "none";
+
+  @Builder.Default
+  private final int batchSize = 256;
+
+  /**
+   * Number of solutions at which counting stops, null counting them all.
+   */
+  private final Integer countLimit;
+
+  @Builder.Default
+  @NonNull
+  private final Mode mode = Mode.FIRST;
+
+  @Builder.Default
+  private final int threads = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * Usage: {@code [FIRST|UNIQUE|COUNT] [input|-] [output|-]}, reading from stdin and writing to stdout by default.
+   */
+  public static void main(final String[] args) throws IOException {
+    SudokuBatchSolver solver = builder().mode(args.length > 0 ? Mode.valueOf(args[0]) : Mode.FIRST).build();
+    Reader input = args.length > 1 && !args[1].equals("-") ? Files.newBufferedReader(Paths.get(args[1]), UTF_8)
+                                                           : new InputStreamReader(System.in, UTF_8);
+    Writer output = args.length > 2 && !args[2].equals("-") ? Files.newBufferedWriter(Paths.get(args[2]), UTF_8)
+                                                            : new OutputStreamWriter(System.out, UTF_8);
+    try (Reader in = input; Writer out = output) {
+      Report report = solver.solve(in, out);
+      System.err.printf("Solved %d puzzles in %s (%.0f puzzles/s)%n",
+                        report.getPuzzles(), report.getElapsed(), report.getPuzzlesPerSecond());
+    }
+  }
+
+  public Report solve(final Path input, final Path output) {
+    try (Reader reader = Files.newBufferedReader(input, UTF_8);
+         Writer writer = Files.newBufferedWriter(output, UTF_8)) {
+      return solve(reader, writer);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public Report solve(final Reader input, final Writer output) {
+    checkArgument(batchSize > 0, "Batch size %s should be positive", batchSize);
+    checkArgument(threads > 0, "Thread count %s should be positive", threads);
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    Deque<Future<List<String>>> pending = new ArrayDeque<>();
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    long puzzles = 0;
+    try {
+      BufferedReader reader = new BufferedReader(input);
+      List<String> batch = newArrayListWithCapacity(batchSize);
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        String puzzle = line.trim();
+        batch.add(puzzle);
+        puzzles += puzzle.isEmpty() ? 0 : 1;
+        if (batch.size() == batchSize) {
+          pending.add(submit(executor, batch));
+          batch = newArrayListWithCapacity(batchSize);
+          while (pending.size() > 2 * threads) {
+            write(output, pending.poll());
+          }
+        }
+      }
+      if (!batch.isEmpty()) {
+        pending.add(submit(executor, batch));
+      }
+      while (!pending.isEmpty()) {
+        write(output, pending.poll());
+      }
+      output.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      executor.shutdownNow();
+    }
+    return new Report(stopwatch.elapsed(), puzzles);
+  }
+
+  String answer(final Sudoku sudoku) {
+    switch (mode) {
+      case FIRST:
+        return sudoku.solve(Solver.Options.withLimit(1)).stream().findFirst().map(Sudoku::toLineString).orElse(NONE);
+      case UNIQUE:
+        List<Sudoku> solutions = sudoku.solve(Solver.Options.withLimit(2));
+        return solutions.isEmpty() ? NONE : solutions.size() > 1 ? MULTIPLE : solutions.get(0).toLineString();
+      case COUNT:
+        return String.valueOf(sudoku.count(Solver.Options.builder().limit(countLimit).build()));
+      default:
+        throw new IllegalStateException("Unsupported mode " + mode);
+    }
+  }
+
+  String solve(final String line) {
+    if (line.isEmpty()) {
+      return line;
+    }
+    try {
+      return answer(Sudoku.parseLine(line));
+    } catch (IllegalArgumentException e) {
+      return INVALID;
+    } catch (RuntimeException e) {
+      return ERROR + " " + String.valueOf(e.getMessage() == null ? e : e.getMessage()).replace('\n', ' ');
+    }
+  }
+
+  private Future<List<String>> submit(final ExecutorService executor, final List<String> batch) {
+    return executor.submit(() -> batch.stream().map(this::solve).collect(toList()));
+  }
+
+  private static void write(final Writer output, final Future<List<String>> answers) throws IOException {
+    try {
+      for (String answer : answers.get()) {
+        output.write(answer);
+        output.write('\n');
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for answers", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Unable to solve batch", e.getCause());
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package dancinglinks;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Lists.newArrayListWithCapacity;
+
+import lombok.Builder;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generates uniquely solvable puzzles by removing givens from a random full board for as long as the solution stays
+ * unique. Without a target every remaining given is required, so the puzzle is minimal.
+ */
+@Builder
+public class SudokuGenerator {
+  @Builder.Default
+  private final long seed = System.nanoTime();
+
+  @Builder.Default
+  private final int size = 9;
+
+  private final int targetGivens;
+
+  @Builder.Default
+  private final int threads = Runtime.getRuntime().availableProcessors();
+
+  public Sudoku generate() {
+    return generate(seed);
+  }
+
+  /**
+   * Generates {@code count} puzzles in parallel, the i-th one being the puzzle generated from {@code seed + i}.
+   */
+  public List<Sudoku> generate(final int count) {
+    checkArgument(threads > 0, "Thread count %s should be positive", threads);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Sudoku>> futures = newArrayListWithCapacity(count);
+      for (int i = 0; i < count; i++) {
+        long puzzleSeed = seed + i;
+        futures.add(executor.submit(() -> generate(puzzleSeed)));
+      }
+      List<Sudoku> result = newArrayListWithCapacity(count);
+      for (Future<Sudoku> future : futures) {
+        result.add(future.get());
+      }
+      return result;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while generating puzzles", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Unable to generate puzzles", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private Sudoku generate(final long puzzleSeed) {
+    checkArgument(targetGivens >= 0 && targetGivens <= size * size, "Target givens %s out of range", targetGivens);
+    SudokuMaskSolver solver = new SudokuMaskSolver(size);
+    Random random = new Random(puzzleSeed);
+    int[] values = randomBoard(solver, random);
+
+    int givens = values.length;
+    for (int cell : permutation(values.length, 0, random)) {
+      if (givens <= targetGivens) {
+        break;
+      }
+      int value = values[cell];
+      if (!hasAlternative(solver, values, cell, value)) {
+        values[cell] = 0;
+        givens--;
+      }
+    }
+    return Sudoku.fromValues(size, values);
+  }
+
+  /**
+   * Checks whether the board still has a solution when the value of the cell is replaced by any other value, which
+   * is the case exactly when removing the given would make the solution not unique.
+   */
+  private boolean hasAlternative(final SudokuMaskSolver solver, final int[] values, final int cell, final int value) {
+    try {
+      for (int other = 1; other <= size; other++) {
+        values[cell] = other;
+        if (other != value && !solver.solve(values, 1).isEmpty()) {
+          return true;
+        }
+      }
+      return false;
+    } finally {
+      values[cell] = value;
+    }
+  }
+
+  private static int[] permutation(final int size, final int offset, final Random random) {
+    int[] result = new int[size];
+    for (int i = 0; i < size; i++) {
+      result[i] = i + offset;
+    }
+    for (int i = size - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int swap = result[i];
+      result[i] = result[j];
+      result[j] = swap;
+    }
+    return result;
+  }
+
+  /**
+   * Shuffles a canonical solution with validity preserving transformations: relabelling the symbols, permuting bands
+   * and the rows inside them, permuting stacks and the columns inside them, and transposing.
+   */
+  private int[] randomBoard(final SudokuMaskSolver solver, final Random random) {
+    int[] canonical = solver.solve(new int[size * size], 1).get(0);
+    int boxSize = (int) Math.sqrt(size);
+    int[] symbols = permutation(size, 1, random);
+    int[] rows = lines(boxSize, random);
+    int[] columns = lines(boxSize, random);
+    boolean transpose = random.nextBoolean();
+
+    int[] result = new int[canonical.length];
+    for (int row = 0; row < size; row++) {
+      for (int column = 0; column < size; column++) {
+        int source = transpose ? columns[column] * size + rows[row] : rows[row] * size + columns[column];
+        result[row * size + column] = symbols[canonical[source] - 1];
+      }
+    }
+    return result;
+  }
+
+  private int[] lines(final int boxSize, final Random random) {
+    int[] bands = permutation(boxSize, 0, random);
+    int[] result = new int[size];
+    for (int band = 0; band < boxSize; band++) {
+      int[] inner = permutation(boxSize, 0, random);
+      for (int i = 0; i < boxSize; i++) {
+        result[band * boxSize + i] = bands[band] * boxSize + inner[i];
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,201 @@
+package dancinglinks;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Lists.newArrayList;
+
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+class SudokuMaskSolver {
+  private static class Board {
+    final long[] boxMasks;
+    final int[] cells;
+    final long[] columnMasks;
+    final long[] rowMasks;
+
+    Board(final int size) {
+      this(new int[size * size], new long[size], new long[size], new long[size]);
+    }
+
+    private Board(final int[] cells, final long[] rowMasks, final long[] columnMasks, final long[] boxMasks) {
+      this.cells = cells;
+      this.rowMasks = rowMasks;
+      this.columnMasks = columnMasks;
+      this.boxMasks = boxMasks;
+    }
+
+    Board copy() {
+      return new Board(cells.clone(), rowMasks.clone(), columnMasks.clone(), boxMasks.clone());
+    }
+  }
+
+  private final int[] boxOf;
+  private final long full;
+  private final int size;
+  private final int[][] units;
+
+  SudokuMaskSolver(final int size) {
+    int boxSize = (int) Math.sqrt(size);
+    checkArgument(boxSize * boxSize == size && size <= Long.SIZE, "Unsupported size %s", size);
+    this.size = size;
+    full = size == Long.SIZE ? -1 : (1L << size) - 1;
+
+    boxOf = new int[size * size];
+    units = new int[3 * size][size];
+    for (int row = 0; row < size; row++) {
+      for (int column = 0; column < size; column++) {
+        int cell = row * size + column;
+        int box = (row / boxSize) * boxSize + column / boxSize;
+        boxOf[cell] = box;
+        units[row][column] = cell;
+        units[size + column][row] = cell;
+        units[2 * size + box][(row % boxSize) * boxSize + column % boxSize] = cell;
+      }
+    }
+  }
+
+  static boolean supports(final int size) {
+    int boxSize = (int) Math.sqrt(size);
+    return boxSize * boxSize == size && size >= 9 && size <= Long.SIZE;
+  }
+
+  List<int[]> solve(final int[] givens, final int limit) {
+    return solve(givens, limit, () -> false);
+  }
+
+  /**
+   * Solves a board given as {@code size * size} row-major values, 0 for an empty cell and 1..size for a symbol,
+   * stopping early once {@code cancelled} returns true.
+   */
+  List<int[]> solve(final int[] givens, final int limit, final BooleanSupplier cancelled) {
+    List<int[]> result = newArrayList();
+    forEach(givens, limit, cancelled, result::add);
+    return result;
+  }
+
+  /**
+   * Hands every solution to the consumer instead of keeping them, returning their count.
+   */
+  long forEach(final int[] givens, final int limit, final BooleanSupplier cancelled, final Consumer<int[]> consumer) {
+    checkArgument(givens.length == size * size, "Expected %s cells but got %s", size * size, givens.length);
+    Board board = new Board(size);
+    for (int cell = 0; cell < givens.length; cell++) {
+      int value = givens[cell];
+      checkArgument(value >= 0 && value <= size, "Invalid value %s at cell %s", value, cell);
+      if (value > 0) {
+        if ((candidates(board, cell) & bit(value)) == 0) {
+          return 0;
+        }
+        place(board, cell, value);
+      }
+    }
+    return search(board, 0, limit, cancelled, consumer);
+  }
+
+  private static long bit(final int value) {
+    return 1L << (value - 1);
+  }
+
+  private long candidates(final Board board, final int cell) {
+    int row = cell / size;
+    int column = cell % size;
+    return full & ~(board.rowMasks[row] | board.columnMasks[column] | board.boxMasks[boxOf[cell]]);
+  }
+
+  private void place(final Board board, final int cell, final int value) {
+    long mask = bit(value);
+    board.cells[cell] = value;
+    board.rowMasks[cell / size] |= mask;
+    board.columnMasks[cell % size] |= mask;
+    board.boxMasks[boxOf[cell]] |= mask;
+  }
+
+  private boolean propagate(final Board board) {
+    boolean progress = true;
+    while (progress) {
+      progress = false;
+      for (int cell = 0; cell < board.cells.length; cell++) {
+        if (board.cells[cell] == 0) {
+          long candidates = candidates(board, cell);
+          if (candidates == 0) {
+            return false;
+          }
+          if (Long.bitCount(candidates) == 1) {
+            place(board, cell, Long.numberOfTrailingZeros(candidates) + 1);
+            progress = true;
+          }
+        }
+      }
+
+      for (int[] unit : units) {
+        long once = 0;
+        long twice = 0;
+        long placed = 0;
+        for (int cell : unit) {
+          if (board.cells[cell] == 0) {
+            long candidates = candidates(board, cell);
+            twice |= once & candidates;
+            once |= candidates;
+          } else {
+            placed |= bit(board.cells[cell]);
+          }
+        }
+        if ((once | placed) != full) {
+          return false;
+        }
+        for (long singles = once & ~twice & ~placed; singles != 0; singles &= singles - 1) {
+          long mask = Long.lowestOneBit(singles);
+          int target = -1;
+          for (int cell : unit) {
+            if (board.cells[cell] == 0 && (candidates(board, cell) & mask) != 0) {
+              target = cell;
+              break;
+            }
+          }
+          if (target < 0) {
+            return false;
+          }
+          place(board, target, Long.numberOfTrailingZeros(mask) + 1);
+          progress = true;
+        }
+      }
+    }
+    return true;
+  }
+
+  private long search(final Board board,
+                      final long found,
+                      final int limit,
+                      final BooleanSupplier cancelled,
+                      final Consumer<int[]> consumer) {
+    if (!propagate(board)) {
+      return found;
+    }
+
+    int best = -1;
+    int bestCount = Integer.MAX_VALUE;
+    for (int cell = 0; cell < board.cells.length && bestCount > 2; cell++) {
+      if (board.cells[cell] == 0) {
+        int count = Long.bitCount(candidates(board, cell));
+        if (count < bestCount) {
+          best = cell;
+          bestCount = count;
+        }
+      }
+    }
+    if (best < 0) {
+      consumer.accept(board.cells.clone());
+      return found + 1;
+    }
+
+    long result = found;
+    for (long candidates = candidates(board, best); candidates != 0 && result < limit && !cancelled.getAsBoolean();
+         candidates &= candidates - 1) {
+      Board next = board.copy();
+      place(next, best, Long.numberOfTrailingZeros(candidates) + 1);
+      result = search(next, result, limit, cancelled, consumer);
+    }
+    return result;
+  }
+}
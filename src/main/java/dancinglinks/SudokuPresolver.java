@@ -0,0 +1,168 @@
+package dancinglinks;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+
+/**
+ * Applies naked singles, hidden singles and locked candidates to a Sudoku board before it is handed to the matrix solver.
+ */
+class SudokuPresolver {
+  private final int boxSize;
+  private final long full;
+  private final int size;
+  private final int[][] units;
+  private final int[][] unitsOf;
+
+  SudokuPresolver(final int size) {
+    int root = (int) Math.sqrt(size);
+    checkArgument(size <= Long.SIZE, "Unsupported size %s", size);
+    this.size = size;
+    boxSize = root * root == size ? root : 0;
+    full = size == Long.SIZE ? -1 : (1L << size) - 1;
+
+    int unitCount = (boxSize > 0 ? 3 : 2) * size;
+    units = new int[unitCount][size];
+    unitsOf = new int[size * size][unitCount / size];
+    for (int row = 0; row < size; row++) {
+      for (int column = 0; column < size; column++) {
+        int cell = row * size + column;
+        units[row][column] = cell;
+        units[size + column][row] = cell;
+        unitsOf[cell][0] = row;
+        unitsOf[cell][1] = size + column;
+        if (boxSize > 0) {
+          int box = (row / boxSize) * boxSize + column / boxSize;
+          units[2 * size + box][(row % boxSize) * boxSize + column % boxSize] = cell;
+          unitsOf[cell][2] = 2 * size + box;
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the remaining candidate mask of every cell, a single bit for the placed ones, or null when the board
+   * has no solution.
+   */
+  long[] presolve(final int[] values) {
+    checkArgument(values.length == size * size, "Expected %s cells but got %s", size * size, values.length);
+    long[] candidates = new long[values.length];
+    Arrays.fill(candidates, full);
+    boolean[] placed = new boolean[values.length];
+    for (int cell = 0; cell < values.length; cell++) {
+      if (values[cell] > 0) {
+        long mask = 1L << (values[cell] - 1);
+        if ((candidates[cell] & mask) == 0) {
+          return null;
+        }
+        candidates[cell] = mask;
+        place(candidates, placed, cell);
+      }
+    }
+
+    boolean progress = true;
+    while (progress) {
+      progress = false;
+      for (int cell = 0; cell < candidates.length; cell++) {
+        if (candidates[cell] == 0) {
+          return null;
+        }
+        if (!placed[cell] && Long.bitCount(candidates[cell]) == 1) {
+          place(candidates, placed, cell);
+          progress = true;
+        }
+      }
+
+      for (int[] unit : units) {
+        for (long mask = 1; (full & mask) != 0; mask <<= 1) {
+          int count = 0;
+          int target = -1;
+          for (int cell : unit) {
+            if ((candidates[cell] & mask) != 0) {
+              count++;
+              target = cell;
+            }
+          }
+          if (count == 0) {
+            return null;
+          }
+          if (count == 1 && !placed[target]) {
+            candidates[target] = mask;
+            place(candidates, placed, target);
+            progress = true;
+          }
+        }
+      }
+
+      if (boxSize > 0 && !progress) {
+        progress = eliminateLockedCandidates(candidates, placed);
+      }
+    }
+    return candidates;
+  }
+
+  private boolean eliminate(final long[] candidates, final boolean[] placed, final int[] unit, final long mask, final int keepUnit) {
+    boolean result = false;
+    for (int cell : unit) {
+      if (!placed[cell] && (candidates[cell] & mask) != 0 && !contains(unitsOf[cell], keepUnit)) {
+        candidates[cell] &= ~mask;
+        result = true;
+      }
+    }
+    return result;
+  }
+
+  private boolean eliminateLockedCandidates(final long[] candidates, final boolean[] placed) {
+    boolean result = false;
+    for (int unitIndex = 0; unitIndex < units.length; unitIndex++) {
+      int[] unit = units[unitIndex];
+      for (long mask = 1; (full & mask) != 0; mask <<= 1) {
+        int[] shared = null;
+        for (int cell : unit) {
+          if (!placed[cell] && (candidates[cell] & mask) != 0) {
+            shared = shared == null ? unitsOf[cell].clone() : retain(shared, unitsOf[cell]);
+          }
+        }
+        if (shared == null) {
+          continue;
+        }
+        for (int other : shared) {
+          if (other >= 0 && other != unitIndex) {
+            result |= eliminate(candidates, placed, units[other], mask, unitIndex);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  private static boolean contains(final int[] values, final int value) {
+    for (int it : values) {
+      if (it == value) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int[] retain(final int[] shared, final int[] units) {
+    for (int i = 0; i < shared.length; i++) {
+      if (!contains(units, shared[i])) {
+        shared[i] = -1;
+      }
+    }
+    return shared;
+  }
+
+  private void place(final long[] candidates, final boolean[] placed, final int cell) {
+    placed[cell] = true;
+    long mask = candidates[cell];
+    for (int unit : unitsOf[cell]) {
+      for (int peer : units[unit]) {
+        if (peer != cell) {
+          candidates[peer] &= ~mask;
+        }
+      }
+    }
+  }
+}
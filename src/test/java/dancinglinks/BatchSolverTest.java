@@ -0,0 +1,91 @@
+package dancinglinks;
+
+import static dancinglinks.Solver.Options.withLimit;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import dancinglinks.BatchSolver.Report;
+import dancinglinks.Solver.Options;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class BatchSolverTest {
+  private static final String EASY = "..9748...7.........2.1.9.....7...24..64.1.59..98...3.....8.3.2.........6...2759..";
+  private static final String EASY_SOLUTION = "519748632783652419426139875357986241264317598198524367975863124832491756641275983";
+
+  @Test
+  public void boundsChunksInFlight() {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      List<Sudoku> puzzles = Collections.nCopies(20, Sudoku.parseLine(EASY));
+      Report<Sudoku> report = BatchSolver.builder()
+                                         .executor(executor)
+                                         .chunkSize(1)
+                                         .maxChunksInFlight(2)
+                                         .build()
+                                         .solve(puzzles, withLimit(1));
+
+      assertThat(report.getSolutions()).hasSize(20).allMatch(solutions -> solutions.size() == 1);
+      assertThat(report.getMaxQueueDepth()).isBetween(1, 2);
+      assertThrows(IllegalArgumentException.class, () -> BatchSolver.builder().maxChunksInFlight(0).build().solve(puzzles, withLimit(1)));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void failure() {
+    Solvable<Sudoku> failing = options -> {
+      throw new IllegalArgumentException("boom");
+    };
+    assertThrows(IllegalArgumentException.class,
+                 () -> BatchSolver.builder().build().solve(asList(Sudoku.parseLine(EASY), failing), withLimit(1)));
+  }
+
+  @Test
+  public void keepsInputOrderAcrossStructures() {
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      List<Sudoku> puzzles = asList(Sudoku.parseLine(EASY),
+                                    Sudoku.parseLine("1..4..........3."),
+                                    Sudoku.parseLine(EASY),
+                                    Sudoku.parseLine("11.............."),
+                                    Sudoku.parseLine("1..4..........3."));
+      Report<Sudoku> report = BatchSolver.builder().executor(executor).chunkSize(1).build().solve(puzzles, Options.builder().build());
+
+      assertThat(report.getSolutions()).extracting(List::size).containsExactly(1, 3, 1, 0, 3);
+      assertThat(report.getSolutions().get(2).get(0).toLineString()).isEqualTo(EASY_SOLUTION);
+      assertThat(report.getLatencies()).hasSize(5).doesNotContainNull();
+      assertThat(report.getMaxLatency()).isGreaterThanOrEqualTo(report.getMeanLatency());
+      assertThat(report.getMaxQueueDepth()).isBetween(1, 5);
+      assertThat(report.getInstancesPerSecond()).isPositive();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void solveAll() {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      List<List<NQueen>> solutions = Solvable.solveAll(asList(new NQueen(6), new NQueen(4), new NQueen(6)), withLimit(10), executor);
+
+      assertThat(solutions).extracting(List::size).containsExactly(4, 2, 4);
+      assertThat(solutions.get(2)).isEqualTo(solutions.get(0));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void structureKey() {
+    assertThat(Sudoku.parseLine(EASY).getStructureKey()).isEqualTo(Sudoku.parseLine(EASY_SOLUTION).getStructureKey())
+                                                       .isNotEqualTo(Sudoku.parseLine("1..4..........3.").getStructureKey());
+    assertThat(new NQueen(6).getStructureKey()).isNotEqualTo(new NQueen(5).getStructureKey());
+  }
+}
@@ -0,0 +1,81 @@
+package dancinglinks;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import dancinglinks.Matrix.Node;
+import dancinglinks.Solver.Options;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class MatrixFileTest {
+  private Path path;
+
+  @AfterEach
+  public void cleanUp() throws IOException {
+    Files.deleteIfExists(path);
+  }
+
+  @BeforeEach
+  public void init() throws IOException {
+    path = Files.createTempFile("matrix", ".dlx");
+  }
+
+  @Test
+  public void integerIds() {
+    Matrix matrix = new Matrix(3, 1);
+    matrix.addRow(7, 1, 3);
+    matrix.addRow(3, 0, 2);
+    matrix.addRow(5, 0, 1, 2);
+
+    MatrixFile.write(matrix, path);
+    Matrix actual = MatrixFile.read(path);
+
+    assertThat(actual.getUncoveredRows()).extracting(Node::getIndex).containsExactly(7, 3, 5);
+    assertThat(actual.solve()).extracting(Solution::getRowIds).containsExactly(new int[] {3, 7}, new int[] {5});
+  }
+
+  @Test
+  public void notAMatrixFile() throws IOException {
+    Files.write(path, asList("A B C", "A B"));
+    assertThrows(IllegalArgumentException.class, () -> MatrixFile.read(path));
+  }
+
+  @Test
+  public void rowCosts() {
+    Matrix matrix = new Matrix(asList("A", "B"), asList("C"));
+    matrix.addRow("ab", asList("A", "B", "C"), 5);
+    matrix.addRow("a", asList("A"), 1);
+    matrix.addRow("b", asList("B", "C"), 1.5);
+
+    MatrixFile.write(matrix, path, true);
+    Matrix actual = MatrixFile.read(path);
+
+    assertThat(actual.getUncoveredRows()).extracting(Node::getCost).containsExactly(5.0, 1.0, 1.5);
+    assertThat(actual.solve(Options.cheapestWithLimit(1))).extracting(Solution::getRowNames)
+                                                          .containsExactly(asList("a", "b"));
+    assertThat(OffHeapMatrix.map(path).solve()).hasSize(2);
+  }
+
+  @Test
+  public void roundTrip() {
+    Matrix matrix = MatrixBuilder.withConstraintsLines(asList("A B C D | E",
+                                                              "r1: B D",
+                                                              "r2: A C E",
+                                                              "r3: A D",
+                                                              "r4: B C E"));
+    MatrixFile.write(matrix, path, true);
+    Matrix actual = MatrixFile.read(path);
+
+    assertThat(actual.toString()).isEqualTo(matrix.toString());
+    assertThat(actual.solve()).extracting(Solution::getRowNames)
+                              .isEqualTo(newArrayList(asList("r2", "r1"), asList("r3", "r4")));
+  }
+}
@@ -1,18 +1,31 @@
 package dancinglinks;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Sets.newHashSet;
 import static dancinglinks.Solver.Options.withLimit;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import dancinglinks.Matrix.ColumnOrdering;
 import dancinglinks.Matrix.Node;
+import dancinglinks.MatrixBuilder.Format;
 import dancinglinks.Solver.ColumnSelector;
 import dancinglinks.Solver.Options;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
 import java.util.List;
 
 public class MatrixTest {
@@ -73,6 +86,74 @@ public class MatrixTest {
       assertRowNIs(actual, 1, asList("B", "D"));
     }
 
+    @Test
+    public void readSparseMatrixInvalidRow() {
+      assertThrows(IllegalArgumentException.class,
+                   () -> MatrixBuilder.read(new StringReader("A B C D\nr1: 1 | 3"), Format.SPARSE));
+      assertThrows(IllegalArgumentException.class,
+                   () -> MatrixBuilder.read(new StringReader("A B C D\nr1: 1 4294967297"), Format.SPARSE));
+      assertThrows(IllegalArgumentException.class,
+                   () -> MatrixBuilder.read(new StringReader("A B C D\nr1: 1 -"), Format.SPARSE));
+    }
+
+    @Test
+    public void readBooleanMatrix() {
+      Matrix actual = MatrixBuilder.read(new StringReader("A B | C D\n0 1 0 1\r\n1 0 1 0\n\n1 0 0 1\n0 1 1 0\n"), Format.BOOLEAN);
+
+      assertColumnNamesAre(actual.getPrimaryColumns(), asList("A", "B"));
+      assertColumnNamesAre(actual.getSecondaryColumns(), asList("C", "D"));
+      assertRowNamesAre(actual, asList("R1", "R2", "R4", "R5"));
+      assertRowNIs(actual, 1, asList("B", "D"));
+    }
+
+    @Test
+    public void readChannel() {
+      byte[] input = "A B C D\nr1: B D\nr2: A C".getBytes(StandardCharsets.UTF_8);
+      Matrix actual = MatrixBuilder.read(Channels.newChannel(new ByteArrayInputStream(input)), Format.CONSTRAINTS);
+
+      assertRowNamesAre(actual, asList("r1", "r2"));
+      assertRowNIs(actual, 2, asList("A", "C"));
+    }
+
+    @Test
+    public void readConstraints() {
+      Matrix actual = MatrixBuilder.read(new StringReader("A B C D\nr1: B D\nA C\n r3 :A   D\nB C\n"), Format.CONSTRAINTS);
+
+      assertColumnNamesAre(actual.getPrimaryColumns(), asList("A", "B", "C", "D"));
+      assertRowNamesAre(actual, asList("r1", "R2", "r3", "R4"));
+      assertRowNIs(actual, 3, asList("A", "D"));
+      assertThat(actual.solve()).size().isEqualTo(2);
+    }
+
+    @Test
+    public void readPath() throws IOException {
+      Path path = Files.createTempFile("matrix", ".txt");
+      try {
+        Files.write(path, asList("A B C D", "B D", "A C", "A D", "B C"));
+        Matrix actual = MatrixBuilder.read(path, Format.CONSTRAINTS);
+        assertRowNamesAre(actual, asList("R1", "R2", "R3", "R4"));
+        assertRowNIs(actual, 4, asList("B", "C"));
+      } finally {
+        Files.delete(path);
+      }
+    }
+
+    @Test
+    public void readSparseMatrix() {
+      Matrix actual = MatrixBuilder.read(new StringReader("A B C D\nr1: 1 3\nr2: 0 2"), Format.SPARSE);
+
+      assertRowNamesAre(actual, asList("r1", "r2"));
+      assertRowNIs(actual, 1, asList("B", "D"));
+    }
+
+    @Test
+    public void readUnknownColumn() {
+      assertThrows(IllegalStateException.class,
+                   () -> MatrixBuilder.read(new StringReader("A B\nA X"), Format.CONSTRAINTS));
+      assertThrows(IllegalArgumentException.class,
+                   () -> MatrixBuilder.read(new StringReader("A B\n1 0 1"), Format.BOOLEAN));
+    }
+
     void assertRowNIs(final Matrix matrix, final int rowIndex, final List<String> expected) {
       Node row = matrix.getUncoveredRows().get(rowIndex - 1);
       assertThat(row.getAll(Node::getRight)).extracting(it -> it.getColumnHeader().getLabel())
@@ -90,6 +171,229 @@ public class MatrixTest {
     }
   }
 
+  @Nested
+  public class Cheapest {
+    private Matrix matrix;
+
+    @BeforeEach
+    public void init() {
+      matrix = new Matrix(asList("A", "B", "C", "D"), emptyList());
+      matrix.addRow("ab", asList("A", "B"), 3);
+      matrix.addRow("cd", asList("C", "D"), 3);
+      matrix.addRow("ac", asList("A", "C"), 1);
+      matrix.addRow("bd", asList("B", "D"), 1.5);
+      matrix.addRow("abcd", asList("A", "B", "C", "D"), 2.5);
+    }
+
+    @Test
+    public void costlierLeafAfterCheapest() {
+      Matrix single = new Matrix(asList("A"), emptyList());
+      single.addRow("a1", asList("A"), 1);
+      single.addRow("a2", asList("A"), 5);
+
+      assertThat(single.solve(Options.builder().cheapest(true).build())).extracting(Solution::getRowNames)
+                                                                       .containsExactly(asList("a1"));
+    }
+
+    @Test
+    public void limit() {
+      List<Solution> solutions = matrix.solve(Options.cheapestWithLimit(1));
+      assertThat(solutions).size().isEqualTo(1);
+      assertThat(solutions.get(0).getCost()).isEqualTo(2.5);
+    }
+
+    @Test
+    public void negativeCost() {
+      assertThrows(IllegalArgumentException.class, () -> matrix.addRow("a", asList("A"), -1));
+    }
+
+    @Test
+    public void rowsInCostOrder() {
+      assertThat(matrix.getPrimaryColumns().get(0).getAll(Node::getDown))
+        .extracting(it -> it.getRowHeader().getLabel())
+        .containsExactly("ac", "abcd", "ab");
+    }
+
+    @Test
+    public void solve() {
+      List<Solution> solutions = matrix.solve(Options.builder().cheapest(true).build());
+      assertThat(solutions).extracting(Solution::getCost)
+                           .containsOnly(2.5);
+      assertThat(solutions).extracting(Solution::getRowNames)
+                           .containsExactlyInAnyOrder(asList("ac", "bd"),
+                                                      asList("abcd"));
+    }
+  }
+
+  @Nested
+  public class ForcedRows {
+    private Matrix matrix;
+
+    @Test
+    public void conflictingRows() {
+      assertThat(matrix.solve(Options.builder().build(), asList("R1", "R3"))).isEmpty();
+      assertThat(matrix.solve()).size().isEqualTo(3);
+    }
+
+    @BeforeEach
+    public void init() {
+      matrix = MatrixBuilder.fromBooleanMatrix(newArrayList("A B C D",
+                                                            "0 1 0 1",
+                                                            "1 0 1 0",
+                                                            "1 0 0 1",
+                                                            "0 1 1 0",
+                                                            "1 1 0 0",
+                                                            "0 0 1 1"));
+    }
+
+    @Test
+    public void excludedRows() {
+      List<Node> nodes = matrix.getUncoveredNodes();
+      assertThat(matrix.solve(Options.builder().build(), emptyList(), asList("R2", "R4")))
+        .extracting(Solution::getRowNames)
+        .containsExactly(asList("R6", "R5"));
+      assertThat(matrix.solve(Options.builder().build(), asList("R1"), asList("R2"))).isEmpty();
+      assertThat(matrix.getUncoveredNodes()).isEqualTo(nodes);
+    }
+
+    @Test
+    public void matrixIsRestored() {
+      List<Node> rows = matrix.getUncoveredRows();
+      List<Node> nodes = matrix.getUncoveredNodes();
+      matrix.solve(Options.builder().build(), asList("R3"));
+      matrix.solve(withLimit(1), asList("R5"));
+      assertThat(matrix.getUncoveredRows()).isEqualTo(rows);
+      assertThat(matrix.getUncoveredNodes()).isEqualTo(nodes);
+    }
+
+    @Test
+    public void oneRow() {
+      assertThat(matrix.solve(Options.builder().build(), asList("R1")))
+        .extracting(Solution::getRowNames)
+        .containsExactly(asList("R1", "R2"));
+      assertThat(matrix.solve(Options.builder().reduce(true).build(), asList("R6")))
+        .extracting(Solution::getRowNames)
+        .containsExactly(asList("R6", "R5"));
+    }
+
+    @Test
+    public void unknownRow() {
+      assertThrows(IllegalArgumentException.class, () -> matrix.solve(Options.builder().build(), asList("X")));
+    }
+  }
+
+  @Nested
+  public class IncrementalUpdates {
+    private Matrix matrix;
+
+    @Test
+    public void addColumn() {
+      matrix.solve();
+      assertThat(matrix.addPrimaryColumn("E")).isEqualTo(4);
+      assertThat(matrix.addSecondaryColumn("F")).isEqualTo(5);
+      matrix.addRow(6, 4, 5);
+      assertThat(matrix.solve()).extracting(Solution::getRowIds)
+                                .containsExactlyInAnyOrder(new int[] {6, 1, 2},
+                                                           new int[] {6, 5, 4});
+      assertThrows(IllegalArgumentException.class, () -> matrix.addSecondaryColumn("A"));
+    }
+
+    @BeforeEach
+    public void init() {
+      matrix = new Matrix(3, 1, id -> "ABCD".substring(id, id + 1));
+      matrix.addRow(1, 1, 3);
+      matrix.addRow(2, 0, 2);
+      matrix.addRow(3, 0, 3);
+      matrix.addRow(4, 2);
+      matrix.addRow(5, 0, 1);
+    }
+
+    @Test
+    public void optimizeLayoutKeepsIds() {
+      matrix.retireColumn("C");
+      Matrix optimized = matrix.optimizeLayout(ColumnOrdering.ORGAN_PIPE);
+      optimized.addRow(6, 3);
+      assertThat(optimized.solve()).extracting(Solution::getRowIds)
+                                   .containsExactlyInAnyOrder(new int[] {1, 2}, new int[] {5});
+    }
+
+    @Test
+    public void removeRow() {
+      matrix.removeRow(4);
+      assertThat(matrix.solve()).extracting(Solution::getRowIds).containsExactly(new int[] {2, 1});
+      assertThat(matrix.getUncoveredRows()).extracting(Node::getIndex).containsExactly(1, 2, 3, 5);
+      assertThrows(IllegalArgumentException.class, () -> matrix.removeRow(4));
+
+      matrix.addRow(4, 2);
+      assertThat(matrix.solve()).hasSize(2);
+    }
+
+    @Test
+    public void retireColumn() {
+      matrix.retireColumn(2);
+      assertThat(matrix.getPrimaryColumns()).extracting(Node::getLabel).containsExactly("A", "B");
+      assertThat(matrix.solve()).extracting(Solution::getRowIds)
+                                .containsExactlyInAnyOrder(new int[] {1, 2},
+                                                           new int[] {5});
+      assertThrows(IllegalArgumentException.class, () -> matrix.addRow(6, 2));
+      assertThrows(IllegalArgumentException.class, () -> matrix.retireColumn("C"));
+    }
+
+    @Test
+    public void retireColumnUpdatesCostShares() {
+      Matrix costs = MatrixBuilder.withConstraintsLines(asList("A B", "A B", "A", "B"));
+      costs.addRow("AB", asList("A", "B"), 4);
+      costs.retireColumn("B");
+      assertThat(costs.getRow("AB").getRight().getCost()).isEqualTo(4);
+      assertThat(costs.getCostLowerBound()).isEqualTo(0);
+    }
+  }
+
+  @Nested
+  public class IntegerIds {
+    private Matrix matrix;
+
+    @Test
+    public void columnNames() {
+      assertThat(matrix.getPrimaryColumns()).extracting(Node::getLabel).containsExactly("A", "B", "C");
+      assertThat(matrix.getSecondaryColumns()).extracting(Node::getLabel).containsExactly("D");
+      assertThat(new Matrix(2, 1).getSecondaryColumns()).extracting(Node::getLabel).containsExactly("2");
+    }
+
+    @Test
+    public void forcedRows() {
+      assertThat(matrix.solve(Options.builder().build(), 4))
+        .extracting(Solution::getRowIds)
+        .containsExactly(new int[] {4, 5});
+    }
+
+    @BeforeEach
+    public void init() {
+      matrix = new Matrix(3, 1, id -> "ABCD".substring(id, id + 1));
+      matrix.addRow(1, 1, 3);
+      matrix.addRow(2, 0, 2);
+      matrix.addRow(3, 0, 3);
+      matrix.addRow(4, 2);
+      matrix.addRow(5, 0, 1);
+    }
+
+    @Test
+    public void invalidRows() {
+      assertThrows(IllegalArgumentException.class, () -> matrix.addRow(1, 0));
+      assertThrows(IllegalArgumentException.class, () -> matrix.addRow(6, 4));
+    }
+
+    @Test
+    public void solve() {
+      List<Solution> solutions = matrix.solve();
+      assertThat(solutions).extracting(Solution::getRowIds)
+                           .containsExactlyInAnyOrder(new int[] {1, 2},
+                                                      new int[] {5, 4});
+      assertThat(solutions).extracting(Solution::getRowNames)
+                           .contains(asList("#1", "#2"));
+    }
+  }
+
   @Nested
   public class KnuthConfiguration {
     @Nested
@@ -195,6 +499,21 @@ public class MatrixTest {
   public class MultipleSolutions {
     private Matrix matrix;
 
+    @Test
+    public void count() {
+      assertThat(matrix.count(Options.builder().build(), new int[0], new int[0])).isEqualTo(3);
+      assertThat(matrix.count(withLimit(2), new int[0], new int[0])).isEqualTo(2);
+    }
+
+    @Test
+    public void forEach() {
+      List<Solution> streamed = newArrayList();
+      long count = matrix.forEach(Options.builder().build(), new int[0], new int[0], streamed::add);
+      assertThat(count).isEqualTo(3);
+      assertThat(streamed).extracting(Solution::getCoveredColumnNames)
+                          .containsExactlyElementsOf(matrix.solve().stream().map(Solution::getCoveredColumnNames).collect(toList()));
+    }
+
     @Test
     public void hasSolutions() {
       assertThat(matrix.hasSolutions()).isTrue();
@@ -234,6 +553,131 @@ public class MatrixTest {
     }
   }
 
+  @Nested
+  public class OptimizeLayout {
+    @Test
+    public void families() {
+      Matrix matrix = MatrixBuilder.withConstraintsLines(asList("A B C x y z | H I", "r1: A x H"));
+      Matrix actual = matrix.optimizeLayout(ColumnOrdering.ORGAN_PIPE,
+                                            column -> Character.isUpperCase(column.getLabel().charAt(0)));
+      assertThat(actual.getUncoveredPrimaryColumns()).extracting(Node::getLabel)
+                                                     .containsExactly("B", "C", "A", "y", "z", "x");
+      assertThat(actual.getUncoveredSecondaryColumns()).extracting(Node::getLabel)
+                                                       .containsExactly("H", "I");
+      assertThat(actual.solve()).extracting(Solution::getRowNames).isEmpty();
+    }
+
+    @Test
+    public void nQueenFamilies() {
+      assertThat(ModelSolver.getMatrix(new NQueen(4).toModel()).getUncoveredPrimaryColumns())
+        .extracting(Node::getIndex)
+        .containsExactly(0, 1, 2, 3, 4, 5, 6, 7);
+      Matrix actual = ModelSolver.getMatrix(new NQueen(4).toModel(ColumnOrdering.ORGAN_PIPE));
+      assertThat(actual.getUncoveredPrimaryColumns()).extracting(Node::getIndex)
+                                                     .containsExactly(1, 2, 0, 3, 5, 6, 4, 7);
+      assertThat(actual.getUncoveredSecondaryColumns()).extracting(Node::getIndex)
+                                                       .containsExactly(11, 12, 10, 13, 9, 14, 8,
+                                                                        18, 19, 17, 20, 16, 21, 15);
+      assertThat(new NQueen(9).solve()).hasSize(352);
+    }
+
+    @Test
+    public void organPipe() {
+      Matrix matrix = MatrixBuilder.withConstraintsLines(asList("A B C D E F G | H I J K",
+                                                                "r1: A H",
+                                                                "r2: B C"));
+      Matrix actual = matrix.optimizeLayout(ColumnOrdering.ORGAN_PIPE);
+      assertThat(actual.getUncoveredPrimaryColumns()).extracting(Node::getLabel)
+                                                     .containsExactly("D", "E", "C", "F", "B", "G", "A");
+      assertThat(actual.getUncoveredSecondaryColumns()).extracting(Node::getLabel)
+                                                       .containsExactly("I", "J", "H", "K");
+      assertThat(actual.getPrimaryColumns()).extracting(Node::getLabel)
+                                            .containsExactly("A", "B", "C", "D", "E", "F", "G");
+    }
+
+    @Test
+    public void sameMatrix() {
+      Matrix matrix = MatrixBuilder.fromBooleanMatrix(newArrayList("A B C D",
+                                                                   "0 1 0 1",
+                                                                   "1 0 1 0",
+                                                                   "1 0 0 1",
+                                                                   "0 1 1 0",
+                                                                   "1 1 0 0",
+                                                                   "0 0 1 1"));
+      Matrix actual = matrix.optimizeLayout(ColumnOrdering.INPUT);
+
+      assertThat(actual.toString()).isEqualTo(matrix.toString());
+      assertThat(actual.getUncoveredNodes()).extracting(Node::toString)
+                                            .isEqualTo(matrix.getUncoveredNodes().stream().map(Node::toString).collect(toList()));
+      assertThat(actual.solve()).extracting(Solution::getRowNames)
+                                .isEqualTo(matrix.solve().stream().map(Solution::getRowNames).collect(toList()));
+      assertThat(actual.solve(Options.builder().build(), asList("R1"))).size().isEqualTo(1);
+    }
+  }
+
+  @Nested
+  public class Reduce {
+    @Test
+    public void blockedRow() {
+      Matrix matrix = MatrixBuilder.withConstraintsLines(asList("A B C D",
+                                                                "r1: A B",
+                                                                "r2: A C",
+                                                                "r3: B D",
+                                                                "r4: C D",
+                                                                "r5: B C"));
+      List<Solution> expected = matrix.solve();
+
+      Reduction reduction = matrix.reduce();
+      assertThat(reduction.getForcedRows()).isEmpty();
+      assertThat(reduction.getRemovedRows()).extracting(Node::getLabel).containsExactly("r5");
+      assertThat(matrix.getUncoveredRows()).extracting(Node::getLabel).containsExactly("r1", "r2", "r3", "r4");
+
+      reduction.undo();
+      assertThat(matrix.getUncoveredRows()).extracting(Node::getLabel).containsExactly("r1", "r2", "r3", "r4", "r5");
+      assertThat(matrix.solve(Options.builder().reduce(true).build())).isEqualTo(expected);
+    }
+
+    @Test
+    public void forcedRows() {
+      Matrix matrix = MatrixBuilder.withConstraintsLines(asList("A B C",
+                                                                "r1: A",
+                                                                "r2: B",
+                                                                "r3: A C"));
+      Reduction reduction = matrix.reduce();
+      assertThat(reduction.getForcedRows()).extracting(Node::getLabel).containsExactly("r2", "r3");
+      assertThat(matrix.isEmpty()).isTrue();
+      reduction.undo();
+
+      List<Solution> solutions = matrix.solve(Options.builder().reduce(true).build());
+      assertThat(solutions).extracting(Solution::getRowNames)
+                           .containsExactly(asList("r2", "r3"));
+      assertThat(matrix.getUncoveredRows()).size().isEqualTo(3);
+    }
+
+    @Test
+    public void infeasible() {
+      Matrix matrix = MatrixBuilder.withConstraintsLines(asList("A B C",
+                                                                "r1: A B",
+                                                                "r2: B C"));
+      assertThat(matrix.reduce().isInfeasible()).isTrue();
+    }
+
+    @Test
+    public void sameSolutionsAsKnuthConfiguration() {
+      Matrix matrix = MatrixBuilder.fromBooleanMatrix(newArrayList("A B C D E F G",
+                                                                   "0 0 1 0 1 1 0",
+                                                                   "1 0 0 1 0 0 1",
+                                                                   "0 1 1 0 0 1 0",
+                                                                   "1 0 0 1 0 0 0",
+                                                                   "0 1 0 0 0 0 1",
+                                                                   "0 0 0 1 1 0 1"));
+      assertThat(matrix.solve(Options.builder().reduce(true).build()))
+        .extracting(Solution::getRowNames)
+        .extracting(HashSet::new)
+        .containsExactly(newHashSet("R1", "R4", "R5"));
+    }
+  }
+
   @Nested
   public class OptionalColumn {
 
@@ -0,0 +1,158 @@
+package dancinglinks;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static dancinglinks.Solver.Options.withLimit;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import dancinglinks.Solver.Options;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ModelSolverTest {
+
+  /**
+   * Columns A B C D covered by the rows 0: B D, 1: A C, 2: A D, 3: B C, 4: A B, 5: C D.
+   */
+  private static class PairsModel implements ConstraintModel<List<Integer>> {
+    private static final int[][] ROWS = {{1, 3}, {0, 2}, {0, 3}, {1, 2}, {0, 1}, {2, 3}};
+    private final boolean filtered;
+    private final int[] forcedRowIds;
+
+    PairsModel(final boolean filtered, final int... forcedRowIds) {
+      this.filtered = filtered;
+      this.forcedRowIds = forcedRowIds;
+    }
+
+    @Override
+    public boolean accept(final List<Integer> solution) {
+      return !filtered || solution.contains(0) || solution.contains(5);
+    }
+
+    @Override
+    public List<Integer> decode(final int[] rowIds) {
+      return Arrays.stream(rowIds).sorted().boxed().collect(toList());
+    }
+
+    @Override
+    public void generateRows(final Rows rows) {
+      for (int rowId = 0; rowId < ROWS.length; rowId++) {
+        rows.add(rowId, ROWS[rowId]);
+      }
+    }
+
+    @Override
+    public int[] getForcedRowIds() {
+      return forcedRowIds;
+    }
+
+    @Override
+    public int getPrimaryColumnCount() {
+      return 4;
+    }
+
+    @Override
+    public Object getTemplateKey() {
+      return "pairs";
+    }
+
+    @Override
+    public boolean isFiltered() {
+      return filtered;
+    }
+  }
+
+  @Nested
+  public class Filtered {
+    @Test
+    public void count() {
+      assertThat(ModelSolver.count(new PairsModel(true), Options.builder().build())).isEqualTo(2);
+    }
+
+    @Test
+    public void limitStopsSearch() {
+      ByteArrayOutputStream log = new ByteArrayOutputStream();
+      Options options = Options.builder().limit(1).logger(new PrintStream(log, true)).build();
+
+      assertThat(ModelSolver.solve(new PairsModel(true), options)).hasSize(1);
+      assertThat(log.toString().split("found solution", -1)).hasSize(2);
+    }
+
+    @Test
+    public void limitAppliesToKeptSolutions() {
+      assertThat(ModelSolver.solve(new PairsModel(true), withLimit(2))).containsExactlyInAnyOrder(asList(0, 1), asList(4, 5));
+    }
+  }
+
+  @Nested
+  public class Parallel {
+    @Test
+    public void cheapest() {
+      ExecutorService executor = Executors.newFixedThreadPool(2);
+      try {
+        assertThrows(IllegalArgumentException.class,
+                     () -> ModelSolver.solveParallel(new PairsModel(false), Options.cheapestWithLimit(1), executor));
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+
+    @Test
+    public void sameOrderAsSequential() {
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+        ConstraintModel<NQueen> model = new NQueen(8).toModel();
+        List<NQueen> expected = ModelSolver.solve(model, Options.builder().build());
+        assertThat(ModelSolver.solveParallel(model, Options.builder().build(), executor)).hasSize(92).isEqualTo(expected);
+        assertThat(ModelSolver.solveParallel(model, withLimit(10), executor)).isEqualTo(expected.subList(0, 10));
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+  @Test
+  public void cachesMatrixPerKey() {
+    assertThat(ModelSolver.getMatrix(new PairsModel(false))).isSameAs(ModelSolver.getMatrix(new PairsModel(true)));
+  }
+
+  @Test
+  public void consumerSolvingSameTemplate() {
+    List<Long> nested = newArrayList();
+    long count = ModelSolver.forEach(new PairsModel(false), Options.builder().build(),
+                                     solution -> nested.add(ModelSolver.count(new PairsModel(false), Options.builder().build())));
+
+    assertThat(count).isEqualTo(3);
+    assertThat(nested).containsExactly(3L, 3L, 3L);
+    assertThat(ModelSolver.count(new PairsModel(false), Options.builder().build())).isEqualTo(3);
+  }
+
+  @Test
+  public void count() {
+    assertThat(ModelSolver.count(new PairsModel(false), Options.builder().build())).isEqualTo(3);
+    assertThat(ModelSolver.count(new PairsModel(false, 4), Options.builder().build())).isEqualTo(1);
+  }
+
+  @Test
+  public void forEach() {
+    List<List<Integer>> streamed = newArrayList();
+    assertThat(ModelSolver.forEach(new PairsModel(false), withLimit(2), streamed::add)).isEqualTo(2);
+    assertThat(streamed).hasSize(2).isSubsetOf(ModelSolver.solve(new PairsModel(false), Options.builder().build()));
+  }
+
+  @Test
+  public void solve() {
+    assertThat(ModelSolver.solve(new PairsModel(false), Options.builder().build()))
+      .containsExactlyInAnyOrder(asList(0, 1), asList(2, 3), asList(4, 5));
+    assertThat(ModelSolver.solve(new PairsModel(false, 0, 2), Options.builder().build())).isEmpty();
+  }
+}
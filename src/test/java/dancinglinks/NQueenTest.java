@@ -13,6 +13,83 @@ import java.util.concurrent.TimeUnit;
 
 public class NQueenTest {
 
+  @Nested
+  public class Bitboard {
+    @Test
+    public void count() {
+      assertThat(new NQueen(1).count()).isEqualTo(1);
+      assertThat(new NQueen(3).count()).isEqualTo(0);
+      assertThat(new NQueen(8).count()).isEqualTo(92);
+      assertThat(new NQueen(9).count()).isEqualTo(352);
+      assertThat(new NQueen(12).count()).isEqualTo(14200);
+    }
+
+    @Test
+    public void countLarge() {
+      Stopwatch stopwatch = Stopwatch.createStarted();
+      long count = new NQueen(14).count();
+      System.out.printf("%nCounted %d solutions of size 14 in %s ms%n", count, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+      assertThat(count).isEqualTo(365596);
+    }
+
+    @Test
+    public void countWithPreplacedQueens() {
+      assertThat(new NQueen(8, asList(new Cell(2, 2))).count()).isEqualTo(16);
+      assertThat(new NQueen(8, asList(new Cell(1, 1), new Cell(2, 2))).count()).isEqualTo(0);
+      assertThat(new NQueen(8, asList(new Cell(1, 1), new Cell(1, 3))).count()).isEqualTo(0);
+    }
+
+    @Test
+    public void firstSolutionsMatchMatrix() {
+      NQueen input = new NQueen(8, asList(new Cell(5, 3)));
+      List<NQueen> all = input.solve();
+      assertThat(input.solve(Solver.Options.withLimit(5))).hasSize(5).isSubsetOf(all);
+      assertThat(input.solve(Solver.Options.withLimit(all.size() + 1))).containsExactlyInAnyOrderElementsOf(all);
+    }
+  }
+
+  @Nested
+  public class Layout {
+    @Test
+    public void organPipeAgainstInput() {
+      for (Matrix.ColumnOrdering ordering : Matrix.ColumnOrdering.values()) {
+        ConstraintModel<NQueen> model = new NQueen(11).toModel(ordering);
+        ModelSolver.count(model, Solver.Options.builder().build());
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        for (int i = 0; i < 5; i++) {
+          assertThat(ModelSolver.count(model, Solver.Options.builder().build())).isEqualTo(2680);
+        }
+        System.out.printf("%nCounted size 11 five times with %s layout in %s ms%n",
+                          ordering,
+                          stopwatch.elapsed(TimeUnit.MILLISECONDS));
+      }
+    }
+
+    @Test
+    public void organPipeSameSolutions() {
+      List<NQueen> input = ModelSolver.solve(new NQueen(6).toModel(), Solver.Options.builder().build());
+      assertThat(ModelSolver.solve(new NQueen(6).toModel(Matrix.ColumnOrdering.ORGAN_PIPE), Solver.Options.builder().build()))
+        .containsExactlyInAnyOrderElementsOf(input);
+    }
+  }
+
+  @Nested
+  public class Template {
+    @Test
+    public void attackingQueens() {
+      assertThat(new NQueen(6, asList(new Cell(1, 1), new Cell(4, 4))).solve()).isEmpty();
+      assertThat(new NQueen(6, asList(new Cell(2, 5), new Cell(6, 5))).solve()).isEmpty();
+    }
+
+    @Test
+    public void keepsPreplacedQueens() {
+      List<Cell> queens = asList(new Cell(1, 2), new Cell(3, 1));
+      List<NQueen> actual = new NQueen(8, queens).solve();
+      assertThat(actual).hasSize((int) new NQueen(8, queens).count())
+                        .allSatisfy(solution -> assertThat(solution.getExistingValues()).containsAll(queens).hasSize(8));
+    }
+  }
+
   @Nested
   public class Size10 {
     @Test
@@ -57,6 +134,38 @@ public class NQueenTest {
     }
   }
 
+  @Nested
+  public class Symmetry {
+    @Test
+    public void emptyBoards() {
+      assertReport(new NQueen(4), 1, 2);
+      assertReport(new NQueen(5), 2, 10);
+      assertReport(new NQueen(6), 1, 4);
+      assertReport(new NQueen(8), 12, 92);
+      assertReport(new NQueen(10), 92, 724);
+    }
+
+    @Test
+    public void invariantPreplacement() {
+      NQueen input = new NQueen(7, asList(new Cell(4, 4)));
+      NQueen.SymmetryReport report = input.solveWithSymmetry();
+      assertThat(report.getTotalSolutionCount()).isEqualTo(input.solve().size());
+      assertThat(report.getUniqueSolutionCount()).isLessThan(report.getTotalSolutionCount());
+    }
+
+    @Test
+    public void notInvariantPreplacement() {
+      NQueen.SymmetryReport report = new NQueen(8, asList(new Cell(2, 2))).solveWithSymmetry();
+      assertThat(report.getTotalSolutionCount()).isEqualTo(16);
+    }
+
+    private void assertReport(final NQueen input, final long unique, final long total) {
+      NQueen.SymmetryReport report = input.solveWithSymmetry();
+      assertThat(report.getUniqueSolutionCount()).isEqualTo(unique);
+      assertThat(report.getTotalSolutionCount()).isEqualTo(total);
+    }
+  }
+
   private static void prettyPrint(final NQueen solution) {
     System.out.println(solution.toPrettyString());
   }
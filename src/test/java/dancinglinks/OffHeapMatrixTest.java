@@ -0,0 +1,134 @@
+package dancinglinks;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static dancinglinks.Solver.Options.withLimit;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import dancinglinks.Solver.ColumnSelector;
+import dancinglinks.Solver.Options;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class OffHeapMatrixTest {
+  private static final List<String> KNUTH_CONFIGURATION = newArrayList("A B C D E F G",
+                                                                       "0 0 1 0 1 1 0",
+                                                                       "1 0 0 1 0 0 1",
+                                                                       "0 1 1 0 0 1 0",
+                                                                       "1 0 0 1 0 0 0",
+                                                                       "0 1 0 0 0 0 1",
+                                                                       "0 0 0 1 1 0 1");
+
+  private OffHeapMatrix matrix;
+
+  @Test
+  public void cancellation() {
+    OffHeapMatrix actual = new OffHeapMatrix(2, 0);
+    actual.addRow(1, 0);
+    actual.addRow(2, 1);
+    actual.addRow(3, 0, 1);
+    assertThat(actual.solve()).size().isEqualTo(2);
+    assertThat(actual.solve(Options.builder().cancellation(() -> true).build())).size().isEqualTo(1);
+  }
+
+  @Test
+  public void forcedRows() {
+    assertThat(matrix.solve(Options.builder().build(), asList("R2"))).isEmpty();
+    List<Solution> solutions = matrix.solve(Options.builder().build(), asList("R4"));
+    assertThat(solutions).size().isEqualTo(1);
+    assertThat(solutions.get(0).getRowNames()).containsExactlyInAnyOrder("R1", "R4", "R5")
+                                              .startsWith("R4");
+    assertThat(matrix.solve()).size().isEqualTo(1);
+  }
+
+  @BeforeEach
+  public void init() {
+    matrix = new OffHeapMatrix(asList("A", "B", "C", "D", "E", "F", "G"), emptyList());
+    Matrix heap = MatrixBuilder.fromBooleanMatrix(KNUTH_CONFIGURATION);
+    for (int row = 1; row < KNUTH_CONFIGURATION.size(); row++) {
+      matrix.addRow("R" + row, rowColumns(heap, row));
+    }
+  }
+
+  @Test
+  public void integerIds() {
+    OffHeapMatrix actual = new OffHeapMatrix(3, 1);
+    actual.addRow(7, 1, 3);
+    actual.addRow(3, 0, 2);
+    actual.addRow(5, 0, 1, 2);
+
+    assertThat(actual.solve()).extracting(Solution::getRowIds).containsExactly(new int[] {3, 7}, new int[] {5});
+    assertThat(actual.solve(withLimit(1))).size().isEqualTo(1);
+    assertThat(actual.solve(Options.builder().build(), 7)).extracting(Solution::getRowIds).containsExactly(new int[] {7, 3});
+    assertThrows(IllegalArgumentException.class, () -> actual.addRow(7, 0));
+  }
+
+  @Test
+  public void mappedFile() throws IOException {
+    Path path = Files.createTempFile("matrix", ".dlx");
+    try {
+      MatrixFile.write(MatrixBuilder.fromBooleanMatrix(KNUTH_CONFIGURATION), path, true);
+      OffHeapMatrix actual = OffHeapMatrix.map(path);
+      assertThat(actual.getRowCount()).isEqualTo(6);
+      assertThat(actual.solve()).extracting(Solution::getCoveredColumnNames)
+                                .isEqualTo(MatrixBuilder.fromBooleanMatrix(KNUTH_CONFIGURATION)
+                                                        .solve()
+                                                        .stream()
+                                                        .map(Solution::getCoveredColumnNames)
+                                                        .collect(toList()));
+      actual.addRow("R7", 0, 1, 2, 3, 4, 5, 6);
+      assertThat(actual.solve()).size().isEqualTo(2);
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void namedAndIdRows() {
+    OffHeapMatrix actual = new OffHeapMatrix(3, 0);
+    actual.addRow("R1", 0);
+    actual.addRow(2, 1, 2);
+    actual.addRow("R3", 1);
+    actual.addRow(4, 2);
+
+    List<Solution> solutions = actual.solve(Options.builder().build(), 2);
+    assertThat(solutions).size().isEqualTo(1);
+    assertThat(solutions.get(0).getRowIds()).containsExactly(2, -1);
+    assertThat(solutions.get(0).getRowNames().get(1)).isEqualTo("R1");
+    assertThat(actual.solve(Options.builder().build(), asList("R3"))).extracting(Solution::getRowIds)
+                                                                     .containsExactly(new int[] {-1, -1, 4});
+  }
+
+  @Test
+  public void sameSolutionsAsMatrix() {
+    for (ColumnSelector selector : ColumnSelector.values()) {
+      Options options = Options.builder().columnSelector(selector).build();
+      assertThat(matrix.solve(options)).extracting(Solution::getCoveredColumnNames)
+                                       .containsExactly(MatrixBuilder.fromBooleanMatrix(KNUTH_CONFIGURATION)
+                                                                     .solve(options)
+                                                                     .get(0)
+                                                                     .getCoveredColumnNames());
+    }
+  }
+
+  @Test
+  public void unsupportedOptions() {
+    assertThrows(IllegalArgumentException.class, () -> matrix.solve(Options.builder().cheapest(true).build()));
+  }
+
+  private int[] rowColumns(final Matrix heap, final int row) {
+    return heap.getRow("R" + row)
+               .getAll(Matrix.Node::getRight)
+               .stream()
+               .mapToInt(node -> node.getColumnHeader().getIndex())
+               .toArray();
+  }
+}
@@ -0,0 +1,123 @@
+package dancinglinks;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static dancinglinks.Polyomino.PENTOMINOES;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import dancinglinks.Polyomino.Cell;
+import dancinglinks.Polyomino.Piece;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class PolyominoTest {
+
+  @Nested
+  public class Pentominoes {
+    @Test
+    public void rectangle3x20() {
+      assertThat(count(Polyomino.rectangle(3, 20, PENTOMINOES))).isEqualTo(2);
+    }
+
+    @Test
+    public void rectangle5x12() {
+      assertThat(count(Polyomino.rectangle(5, 12, PENTOMINOES))).isEqualTo(1010);
+    }
+
+    @Test
+    @Tag("slow")
+    public void rectangle6x10() {
+      assertThat(count(Polyomino.rectangle(6, 10, PENTOMINOES))).isEqualTo(2339);
+    }
+
+    @Test
+    public void squareWithHole() {
+      Polyomino input = Polyomino.parse(asList("........",
+                                               "........",
+                                               "........",
+                                               "...##...",
+                                               "...##...",
+                                               "........",
+                                               "........",
+                                               "........"),
+                                        PENTOMINOES);
+      assertThat(count(input)).isEqualTo(65);
+    }
+
+    @Test
+    public void streaming() {
+      Polyomino input = Polyomino.rectangle(3, 20, PENTOMINOES);
+      List<Polyomino> solutions = input.solve();
+      assertThat(solutions).hasSize(2).doesNotHaveDuplicates();
+      assertThat(solutions).allSatisfy(solution -> assertThat(solution.getBoard()).allMatch(cell -> solution.getLabel(cell) != '.'));
+
+      List<Polyomino> streamed = newArrayList();
+      assertThat(input.forEach(Solver.Options.builder().build(), streamed::add)).isEqualTo(2);
+      assertThat(streamed).isEqualTo(solutions);
+    }
+  }
+
+  @Nested
+  public class Pieces {
+    @Test
+    public void orientations() {
+      assertThat(piece('X').getOrientations()).hasSize(1);
+      assertThat(piece('I').getOrientations()).hasSize(2);
+      assertThat(piece('Z').getOrientations()).hasSize(4);
+      assertThat(piece('T').getOrientations()).hasSize(4);
+      assertThat(piece('F').getOrientations()).hasSize(8);
+      assertThat(PENTOMINOES.stream().mapToInt(piece -> piece.getOrientations().size()).sum()).isEqualTo(63);
+    }
+
+    @Test
+    public void parse() {
+      assertThat(Piece.parse('L', " L", " L", "LL").getCells())
+        .containsExactlyInAnyOrder(new Cell(0, 1), new Cell(1, 1), new Cell(2, 0), new Cell(2, 1));
+    }
+
+    private Piece piece(final char name) {
+      return PENTOMINOES.stream().filter(piece -> piece.getName() == name).findFirst().orElseThrow(IllegalStateException::new);
+    }
+  }
+
+  @Test
+  public void duplicatePieceNames() {
+    Piece domino = Piece.parse('D', "DD");
+    assertThrows(IllegalArgumentException.class, () -> Polyomino.rectangle(2, 2, asList(domino, domino)));
+  }
+
+  @Test
+  public void matrixEngine() {
+    Solver.Options options = Solver.Options.builder().reduce(true).build();
+    Polyomino input = Polyomino.rectangle(4, 5, pieces("LPWY"));
+    assertThat(input.solve(options)).hasSize(5).containsExactlyInAnyOrderElementsOf(input.solve());
+    assertThat(Polyomino.rectangle(2, 2, asList(Piece.parse('A', "AA"), Piece.parse('B', "BB"))).solve(options)).hasSize(1);
+    assertThat(input.solve(Solver.Options.cheapestWithLimit(1))).hasSize(1);
+  }
+
+  @Test
+  public void noSymmetryBreakingPiece() {
+    List<Piece> pieces = asList(Piece.parse('A', "AA"), Piece.parse('B', "BB"));
+    List<Polyomino> solutions = Polyomino.rectangle(2, 2, pieces).solve();
+    assertThat(solutions).hasSize(1);
+    assertThat(Polyomino.rectangle(2, 2, pieces).count()).isEqualTo(1);
+  }
+
+  @Test
+  public void wrongArea() {
+    assertThat(Polyomino.rectangle(2, 3, asList(Piece.parse('A', "AA"), Piece.parse('B', "BB"))).hasSolutions()).isFalse();
+  }
+
+  private static long count(final Polyomino input) {
+    return input.count();
+  }
+
+  private static List<Piece> pieces(final String names) {
+    return PENTOMINOES.stream().filter(piece -> names.indexOf(piece.getName()) >= 0).collect(toList());
+  }
+}
@@ -0,0 +1,154 @@
+package dancinglinks;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import dancinglinks.Solver.Options;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+
+public class SolutionPublisherTest {
+
+  private static class Recorder implements Flow.Subscriber<Solution> {
+    volatile boolean completed;
+    final CountDownLatch done = new CountDownLatch(1);
+    volatile Throwable error;
+    final Semaphore received = new Semaphore(0);
+    final List<Solution> solutions = Collections.synchronizedList(newArrayList());
+    volatile Flow.Subscription subscription;
+
+    void awaitDone() throws InterruptedException {
+      assertThat(done.await(5, SECONDS)).isTrue();
+    }
+
+    void awaitSolutions(final int count) throws InterruptedException {
+      assertThat(received.tryAcquire(count, 5, SECONDS)).isTrue();
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+      done.countDown();
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+      error = throwable;
+      done.countDown();
+    }
+
+    @Override
+    public void onNext(final Solution item) {
+      solutions.add(item);
+      received.release();
+    }
+
+    @Override
+    public void onSubscribe(final Flow.Subscription subscription) {
+      this.subscription = subscription;
+    }
+  }
+
+  private ExecutorService executor;
+  private Matrix matrix;
+
+  @Test
+  public void backPressure() throws Exception {
+    Recorder recorder = new Recorder();
+    matrix.publish(Options.builder().build(), executor).subscribe(recorder);
+
+    recorder.subscription.request(1);
+    recorder.awaitSolutions(1);
+    Thread.sleep(100);
+    assertThat(recorder.solutions).hasSize(1);
+
+    recorder.subscription.request(2);
+    recorder.awaitSolutions(2);
+    Thread.sleep(100);
+    assertThat(recorder.solutions).hasSize(3);
+    assertThat(recorder.completed).isFalse();
+
+    recorder.subscription.cancel();
+    assertThat(executor.submit(() -> matrix.count(Options.builder().build(), new int[0], new int[0])).get(5, SECONDS))
+      .isEqualTo(92);
+    assertThat(recorder.completed).isFalse();
+    assertThat(recorder.error).isNull();
+  }
+
+  @Test
+  public void cheapest() {
+    assertThrows(IllegalArgumentException.class, () -> matrix.publish(Options.cheapestWithLimit(1), executor));
+  }
+
+  @Test
+  public void complete() throws Exception {
+    Recorder recorder = new Recorder();
+    matrix.publish(Options.builder().build(), executor).subscribe(recorder);
+    recorder.subscription.request(Long.MAX_VALUE);
+    recorder.awaitDone();
+
+    List<Solution> expected = newArrayList();
+    matrix.forEach(Options.builder().build(), new int[0], new int[0], expected::add);
+    assertThat(recorder.completed).isTrue();
+    assertThat(recorder.solutions).hasSize(92).isEqualTo(expected);
+  }
+
+  @BeforeEach
+  public void init() {
+    executor = Executors.newSingleThreadExecutor();
+    matrix = ModelSolver.getMatrix(new NQueen(8).toModel());
+  }
+
+  @Test
+  public void invalidRequest() throws Exception {
+    Recorder recorder = new Recorder();
+    matrix.publish(Options.builder().build(), executor).subscribe(recorder);
+    recorder.subscription.request(0);
+    recorder.awaitDone();
+
+    assertThat(recorder.error).isInstanceOf(IllegalArgumentException.class);
+    assertThat(recorder.solutions).isEmpty();
+  }
+
+  @Test
+  public void limit() throws Exception {
+    Recorder recorder = new Recorder();
+    matrix.publish(Options.withLimit(5), executor).subscribe(recorder);
+    recorder.subscription.request(10);
+    recorder.awaitDone();
+
+    assertThat(recorder.completed).isTrue();
+    assertThat(recorder.solutions).hasSize(5);
+  }
+
+  @Test
+  public void singleSubscriber() throws Exception {
+    SolutionPublisher publisher = matrix.publish(Options.withLimit(1), executor);
+    Recorder first = new Recorder();
+    Recorder second = new Recorder();
+    publisher.subscribe(first);
+    publisher.subscribe(second);
+    first.subscription.request(1);
+    first.awaitDone();
+    second.awaitDone();
+
+    assertThat(first.solutions).hasSize(1);
+    assertThat(second.error).isInstanceOf(IllegalStateException.class);
+  }
+
+  @AfterEach
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,91 @@
+package dancinglinks;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import dancinglinks.Solver.Options;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class SolveFutureTest {
+  private ExecutorService executor;
+
+  @Test
+  public void cancel() throws Exception {
+    SolveFuture<NQueen> future = new NQueen(16).solveAsync(Options.builder().build(), executor);
+    Thread.sleep(50);
+
+    assertThat(future.cancel(true)).isTrue();
+    assertThrows(CancellationException.class, future::join);
+    assertThat(new NQueen(6).solveAsync(Options.builder().build(), executor).get(5, SECONDS)).hasSize(4);
+  }
+
+  @Test
+  public void complete() {
+    assertThat(new NQueen(8).solveAsync(Options.builder().build(), executor).join()).hasSize(92);
+    assertThat(Sudoku.parseLine("1..4..........3.").solveAsync(Options.withLimit(2), executor).join()).hasSize(2);
+  }
+
+  @Test
+  public void failure() {
+    Solvable<String> failing = options -> {
+      throw new IllegalStateException("boom");
+    };
+    CompletionException thrown = assertThrows(CompletionException.class, failing.solveAsync(Options.builder().build(), executor)::join);
+    assertThat(thrown).hasCauseInstanceOf(IllegalStateException.class);
+  }
+
+  @BeforeEach
+  public void init() {
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @AfterEach
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void stopKeepsMatrixSolutions() throws Exception {
+    SolveFuture<NQueen> future = new NQueen(16).solveAsync(Options.builder().build(), executor);
+    Thread.sleep(50);
+    future.stop();
+
+    List<NQueen> partial = future.get(5, SECONDS);
+    assertThat(future.isStopped()).isTrue();
+    assertThat(partial).isNotEmpty();
+    assertThat(partial.size()).isLessThan(14772512);
+    assertThat(partial.get(0).hasSolutions()).isTrue();
+  }
+
+  @Test
+  public void stopKeepsMaskSolutions() throws Exception {
+    SolveFuture<Sudoku> future = Sudoku.parseLine(".................................................................................")
+                                       .solveAsync(Options.builder().build(), executor);
+    Thread.sleep(50);
+    future.stop();
+
+    assertThat(future.get(5, SECONDS)).isNotEmpty();
+  }
+
+  @Test
+  public void stopBeforeStart() throws Exception {
+    CountDownLatch latch = new CountDownLatch(1);
+    executor.execute(() -> Uninterruptibles.awaitUninterruptibly(latch));
+    SolveFuture<NQueen> future = new NQueen(8).solveAsync(Options.builder().build(), executor);
+    future.stop();
+    latch.countDown();
+
+    assertThat(future.get(5, SECONDS)).isEmpty();
+  }
+}
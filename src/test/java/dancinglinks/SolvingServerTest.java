@@ -0,0 +1,90 @@
+package dancinglinks;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+public class SolvingServerTest {
+  private static final String EASY = "..9748...7.........2.1.9.....7...24..64.1.59..98...3.....8.3.2.........6...2759..";
+  private static final String EASY_SOLUTION = "519748632783652419426139875357986241264317598198524367975863124832491756641275983";
+  private static final String MATRIX = "matrix all A B C D/0 1 0 1/1 0 1 0/1 0 0 1/0 1 1 0/1 1 0 0/0 0 1 1";
+
+  private SolvingClient client;
+  private SolvingServer.Running server;
+
+  @Test
+  public void batchesPipelinedRequests() {
+    List<String> requests = newArrayList("nqueen all 10");
+    requests.addAll(Collections.nCopies(100, "sudoku 1 " + EASY));
+    List<List<String>> answers = client.solveAll(requests);
+
+    assertThat(answers.get(0)).hasSize(724);
+    assertThat(answers.subList(1, answers.size())).allMatch(answer -> answer.equals(asList(EASY_SOLUTION)));
+    assertThat(server.getRequestCount()).isEqualTo(101);
+    assertThat(server.getBatchCount()).isLessThan(101);
+  }
+
+  @AfterEach
+  public void close() throws IOException {
+    client.close();
+    server.close();
+  }
+
+  @Test
+  public void errors() {
+    assertThat(assertThrows(IllegalArgumentException.class, () -> client.solve("tetris 1 ...")))
+      .hasMessageContaining("Unknown kind tetris");
+    assertThat(assertThrows(IllegalArgumentException.class, () -> client.solve("sudoku 0 " + EASY)))
+      .hasMessageContaining("Invalid limit 0");
+    assertThat(assertThrows(IllegalArgumentException.class, () -> client.solve("sudoku 1 123")))
+      .hasMessageContaining("not a square board");
+    assertThat(client.solve("nqueen 1 4")).hasSize(1).isSubsetOf("2 4 1 3", "3 1 4 2");
+  }
+
+  @BeforeEach
+  public void init() throws IOException {
+    server = SolvingServer.builder().threads(1).batchSize(64).build().start();
+    client = new SolvingClient(server.getPort());
+  }
+
+  @Test
+  public void matrix() {
+    assertThat(client.solve(MATRIX)).containsExactlyInAnyOrder("R2 R1", "R3 R4", "R5 R6");
+    assertThat(client.solve(MATRIX.replace("all", "2"))).hasSize(2);
+  }
+
+  @Test
+  public void nqueen() {
+    assertThat(client.solve("nqueen all .X../..../..../....")).containsExactly("2 4 1 3");
+    assertThat(client.solve("nqueen 3 8")).hasSize(3);
+  }
+
+  @Test
+  public void severalClients() throws IOException {
+    try (SolvingClient other = new SolvingClient(server.getPort())) {
+      assertThat(other.solve("sudoku all 1..4..........3.")).hasSize(3);
+      assertThat(client.solve("sudoku 1 " + EASY)).containsExactly(EASY_SOLUTION);
+    }
+  }
+
+  @Test
+  public void streaming() {
+    List<String> streamed = newArrayList();
+    assertThat(client.solve("nqueen all 8", streamed::add)).isEqualTo(92);
+    assertThat(streamed).hasSize(92).doesNotHaveDuplicates();
+
+    streamed.clear();
+    assertThat(client.solve("nqueen 5 8", streamed::add)).isEqualTo(5);
+    assertThat(client.solve("sudoku all 1..4..........3.", streamed::add)).isEqualTo(3);
+    assertThat(streamed).hasSize(8).doesNotHaveDuplicates();
+  }
+}
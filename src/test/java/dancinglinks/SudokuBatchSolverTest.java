@@ -0,0 +1,109 @@
+package dancinglinks;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dancinglinks.SudokuBatchSolver.Mode;
+import dancinglinks.SudokuBatchSolver.Report;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class SudokuBatchSolverTest {
+  private static final String EASY = "..9748...7.........2.1.9.....7...24..64.1.59..98...3.....8.3.2.........6...2759..";
+  private static final String EASY_SOLUTION = "519748632783652419426139875357986241264317598198524367975863124832491756641275983";
+  private static final String HARD = "800000000003600000070090200050007000000045700000100030001000068008500010090000400";
+  private static final String HARD_SOLUTION = "812753649943682175675491283154237896369845721287169534521974368438526917796318452";
+
+  private Path input;
+  private Path output;
+
+  @AfterEach
+  public void cleanUp() throws IOException {
+    Files.deleteIfExists(input);
+    Files.deleteIfExists(output);
+  }
+
+  @Test
+  public void count() {
+    assertThat(solve(Mode.COUNT, "1..4..........3.", EASY, "11..............")).containsExactly("3", "1", "0");
+  }
+
+  @Test
+  public void countLimit() {
+    StringWriter writer = new StringWriter();
+    SudokuBatchSolver.builder()
+                     .mode(Mode.COUNT)
+                     .countLimit(2)
+                     .build()
+                     .solve(new StringReader(String.join("\n", "1..4..........3.", "..........3......................................................................", EASY)), writer);
+    assertThat(writer.toString().split("\n")).containsExactly("2", "2", "1");
+  }
+
+  @Test
+  public void failingLine() {
+    SudokuBatchSolver solver = new SudokuBatchSolver(2, null, Mode.FIRST, 2) {
+      @Override
+      String answer(final Sudoku sudoku) {
+        if (sudoku.toLineString().equals(Sudoku.parseLine(HARD).toLineString())) {
+          throw new IllegalStateException("boom");
+        }
+        return super.answer(sudoku);
+      }
+    };
+    StringWriter writer = new StringWriter();
+    solver.solve(new StringReader(String.join("\n", EASY, HARD, "123", EASY)), writer);
+    assertThat(writer.toString().split("\n")).containsExactly(EASY_SOLUTION, "error boom", "invalid", EASY_SOLUTION);
+  }
+
+  @Test
+  public void first() throws IOException {
+    Files.write(input, asList(EASY, "", HARD, "123", "11.............."));
+    Report report = SudokuBatchSolver.builder().threads(2).batchSize(1).build().solve(input, output);
+
+    assertThat(Files.readAllLines(output)).containsExactly(EASY_SOLUTION, "", HARD_SOLUTION, "invalid", "none");
+    assertThat(report.getPuzzles()).isEqualTo(4);
+    assertThat(report.getPuzzlesPerSecond()).isPositive();
+  }
+
+  @BeforeEach
+  public void init() throws IOException {
+    input = Files.createTempFile("sudoku", ".txt");
+    output = Files.createTempFile("sudoku", ".out");
+  }
+
+  @Test
+  public void keepsInputOrder() {
+    String[] lines = new String[500];
+    for (int i = 0; i < lines.length; i++) {
+      lines[i] = i % 2 == 0 ? EASY : HARD;
+    }
+    List<String> answers = solve(Mode.FIRST, lines);
+    for (int i = 0; i < lines.length; i++) {
+      assertThat(answers.get(i)).isEqualTo(i % 2 == 0 ? EASY_SOLUTION : HARD_SOLUTION);
+    }
+  }
+
+  @Test
+  public void unique() {
+    assertThat(solve(Mode.UNIQUE, "1..4..........3.", EASY, "11..............")).containsExactly("multiple", EASY_SOLUTION, "none");
+  }
+
+  private List<String> solve(final Mode mode, final String... lines) {
+    StringWriter writer = new StringWriter();
+    SudokuBatchSolver.builder()
+                     .mode(mode)
+                     .threads(4)
+                     .batchSize(7)
+                     .build()
+                     .solve(new StringReader(String.join("\n", lines)), writer);
+    return asList(writer.toString().split("\n"));
+  }
+}
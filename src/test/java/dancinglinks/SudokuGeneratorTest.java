@@ -0,0 +1,46 @@
+package dancinglinks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class SudokuGeneratorTest {
+  @Test
+  public void minimal() {
+    Sudoku puzzle = SudokuGenerator.builder().seed(42).build().generate();
+    assertThat(puzzle.hasUniqueSolution()).isTrue();
+
+    String line = puzzle.toLineString();
+    for (int cell = 0; cell < line.length(); cell++) {
+      if (line.charAt(cell) != '.') {
+        String reduced = line.substring(0, cell) + '.' + line.substring(cell + 1);
+        assertThat(Sudoku.parseLine(reduced).hasUniqueSolution()).isFalse();
+      }
+    }
+  }
+
+  @Test
+  public void parallel() {
+    SudokuGenerator generator = SudokuGenerator.builder().seed(7).threads(4).build();
+    List<Sudoku> puzzles = generator.generate(8);
+
+    assertThat(puzzles).hasSize(8).doesNotHaveDuplicates().allMatch(Sudoku::hasUniqueSolution);
+    assertThat(puzzles.get(0)).isEqualTo(generator.generate());
+  }
+
+  @Test
+  public void size4x4() {
+    Sudoku puzzle = SudokuGenerator.builder().size(4).seed(1).build().generate();
+    assertThat(puzzle.getSize()).isEqualTo(4);
+    assertThat(puzzle.hasUniqueSolution()).isTrue();
+  }
+
+  @Test
+  public void targetGivens() {
+    Sudoku puzzle = SudokuGenerator.builder().seed(3).targetGivens(40).build().generate();
+    assertThat(puzzle.toLineString().replace(".", "")).hasSize(40);
+    assertThat(puzzle.hasUniqueSolution()).isTrue();
+  }
+}
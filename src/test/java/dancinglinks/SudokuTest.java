@@ -8,11 +8,39 @@ import com.google.common.base.Stopwatch;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class SudokuTest {
 
+  @Nested
+  public class CompactGrid {
+    @Test
+    public void equalsOnGrid() {
+      Sudoku fromCells = new Sudoku(4, asList(new Sudoku.Cell(1, 1, "1"), new Sudoku.Cell(4, 3, "3")));
+      Sudoku fromLine = Sudoku.parseLine("1.............3.");
+      assertThat(fromLine.getAlphabeth()).containsExactly("1", "2", "3", "4");
+      assertThat(fromCells).isEqualTo(fromLine).hasSameHashCodeAs(fromLine);
+      assertThat(fromCells).isNotEqualTo(Sudoku.parseLine("1.............4."));
+    }
+
+    @Test
+    public void invalidCells() {
+      assertThrows(IllegalArgumentException.class,
+                   () -> new Sudoku(4, asList(new Sudoku.Cell(1, 1, "5"))));
+      assertThrows(IllegalArgumentException.class,
+                   () -> new Sudoku(4, asList(new Sudoku.Cell(1, 1, "1"), new Sudoku.Cell(1, 1, "2"))));
+      assertThrows(IllegalArgumentException.class,
+                   () -> new Sudoku(4, asList(new Sudoku.Cell(5, 1, "1"))));
+    }
+  }
+
   @Nested
   public class CustomAlphabeth {
 
@@ -57,6 +85,208 @@ public class SudokuTest {
     }
   }
 
+  @Nested
+  public class LargeBoards {
+    @Test
+    public void defaultAlphabethFromValues() {
+      int[] values = new int[36 * 36];
+      values[0] = 32;
+      Sudoku actual = Sudoku.fromValues(36, values);
+
+      assertThat(actual.getAlphabeth()).isSorted();
+      assertThat(actual).isEqualTo(new Sudoku(36, asList(new Sudoku.Cell(1, 1, "W"))));
+    }
+
+    @Test
+    public void numericAlphabeth() {
+      Sudoku actual = Sudoku.parseNumeric(asList("1 0 0 4",
+                                                 ". . . .",
+                                                 "0 0 0 0",
+                                                 "0 0 3 0"));
+      assertThat(actual.solve()).hasSize(3);
+      assertThat(Sudoku.parseNumeric(board(25, 0.6, 5)).getAlphabeth()).hasSize(25).contains("10", "25");
+    }
+
+    @Test
+    public void size16x16Matrix() {
+      Sudoku puzzle = Sudoku.parseNumeric(board(16, 0.7, 16));
+      assertThat(benchmark("16x16 matrix", () -> puzzle.solveWithMatrix(Solver.Options.withLimit(1)))).hasSize(1);
+    }
+
+    @Test
+    public void size25x25() {
+      Sudoku puzzle = Sudoku.parseNumeric(board(25, 0.65, 25));
+      List<Sudoku> masks = benchmark("25x25 masks", () -> puzzle.solve(Solver.Options.withLimit(1)));
+      List<Sudoku> matrix = benchmark("25x25 matrix", () -> puzzle.solveWithMatrix(Solver.Options.withLimit(1)));
+      assertThat(masks).hasSize(1);
+      assertThat(matrix).hasSize(1);
+      assertThat(masks.get(0).hasUniqueSolution()).isTrue();
+    }
+
+    @Test
+    public void size36x36() {
+      Sudoku puzzle = Sudoku.parseNumeric(board(36, 0.35, 36));
+      List<Sudoku> solutions = benchmark("36x36 masks", () -> puzzle.solve(Solver.Options.withLimit(1)));
+      assertThat(solutions).hasSize(1);
+      assertThat(solutions.get(0).toLineString()).doesNotContain(".");
+    }
+
+    private <T> T benchmark(final String name, final Supplier<T> action) {
+      Stopwatch stopwatch = Stopwatch.createStarted();
+      T result = action.get();
+      System.out.printf("%nSolved %s in %s ms%n", name, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+      return result;
+    }
+
+    /**
+     * Shuffled pattern board with a fraction of the cells blanked, in the numeric format.
+     */
+    private List<String> board(final int size, final double blanks, final long seed) {
+      int boxSize = (int) Math.sqrt(size);
+      Random random = new Random(seed);
+      List<Integer> symbols = IntStream.rangeClosed(1, size).boxed().collect(Collectors.toList());
+      Collections.shuffle(symbols, random);
+      List<String> result = new ArrayList<>();
+      for (int row = 0; row < size; row++) {
+        StringBuilder line = new StringBuilder();
+        for (int column = 0; column < size; column++) {
+          int value = symbols.get((boxSize * (row % boxSize) + row / boxSize + column) % size);
+          line.append(random.nextDouble() < blanks ? "0" : String.valueOf(value)).append(' ');
+        }
+        result.add(line.toString());
+      }
+      return result;
+    }
+  }
+
+  @Nested
+  public class LineFormat {
+    @Test
+    public void parseLine() {
+      assertThat(Sudoku.parseLine("1..4000000000.3.")).isEqualTo(parse("1..4",
+                                                                        "....",
+                                                                        "....",
+                                                                        "..3."));
+      assertThrows(IllegalArgumentException.class, () -> Sudoku.parseLine("1..4."));
+    }
+
+    @Test
+    public void toLineString() {
+      assertThat(parse("1..4",
+                       "....",
+                       "....",
+                       "..3.").toLineString()).isEqualTo("1..4..........3.");
+    }
+  }
+
+  @Nested
+  public class MaskEngine {
+    @Test
+    public void limit() {
+      Sudoku empty = parse(".........",
+                           ".........",
+                           ".........",
+                           ".........",
+                           ".........",
+                           ".........",
+                           ".........",
+                           ".........",
+                           ".........");
+      assertThat(empty.solve(Solver.Options.withLimit(5))).hasSize(5).doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void sameSolutionsAsMatrix() {
+      List<Sudoku> puzzles = asList(parse("1..4",
+                                          "....",
+                                          "....",
+                                          "..3."),
+                                    parse("..9748...",
+                                          "7........",
+                                          ".2.1.9...",
+                                          "..7...24.",
+                                          ".64.1.59.",
+                                          ".98...3..",
+                                          "...8.3.2.",
+                                          "........6",
+                                          "...2759.."),
+                                    parse("8........",
+                                          "..36.....",
+                                          ".7..9.2..",
+                                          ".5...7...",
+                                          "....457..",
+                                          "...1...3.",
+                                          "..1....68",
+                                          "..85...1.",
+                                          ".9....4.."),
+                                    parse("..9748...",
+                                          "7........",
+                                          ".2.1.9...",
+                                          "..7...24.",
+                                          ".64.1.59.",
+                                          ".98...3..",
+                                          "...8.3.2.",
+                                          "........6",
+                                          "........."),
+                                    parse("11.......",
+                                          ".........",
+                                          ".........",
+                                          ".........",
+                                          ".........",
+                                          ".........",
+                                          ".........",
+                                          ".........",
+                                          "........."));
+      Solver.Options options = Solver.Options.builder().build();
+      for (Sudoku puzzle : puzzles) {
+        assertThat(puzzle.solveWithMasks(options)).containsExactlyInAnyOrderElementsOf(puzzle.solveWithMatrix(options));
+      }
+    }
+  }
+
+  @Nested
+  public class Presolve {
+    @Test
+    public void contradiction() {
+      assertThat(new SudokuPresolver(4).presolve(values("12..",
+                                                        "..3.",
+                                                        "...3",
+                                                        "...."))).isNull();
+    }
+
+    @Test
+    public void keepsSolution() {
+      long[] candidates = new SudokuPresolver(9).presolve(values("..9748...",
+                                                                "7........",
+                                                                ".2.1.9...",
+                                                                "..7...24.",
+                                                                ".64.1.59.",
+                                                                ".98...3..",
+                                                                "...8.3.2.",
+                                                                "........6",
+                                                                "...2759.."));
+      int[] solution = values("519748632",
+                              "783652419",
+                              "426139875",
+                              "357986241",
+                              "264317598",
+                              "198524367",
+                              "975863124",
+                              "832491756",
+                              "641275983");
+      int placed = 0;
+      for (int cell = 0; cell < solution.length; cell++) {
+        assertThat(candidates[cell] & 1L << (solution[cell] - 1)).isNotZero();
+        placed += Long.bitCount(candidates[cell]) == 1 ? 1 : 0;
+      }
+      assertThat(placed).isGreaterThan(30);
+    }
+
+    private int[] values(final String... rows) {
+      return String.join("", rows).chars().map(c -> c == '.' ? 0 : c - '0').toArray();
+    }
+  }
+
   @Nested
   public class Size16x16 {
 
@@ -200,6 +430,37 @@ public class SudokuTest {
     }
   }
 
+  @Nested
+  public class Template {
+    @Test
+    public void conflictingGivens() {
+      assertSolution(parse("1..1",
+                           "....",
+                           "....",
+                           "...."));
+    }
+
+    @Test
+    public void reusedAcrossPuzzles() {
+      Sudoku first = parse("1..4",
+                           "....",
+                           "....",
+                           "..3.");
+      Sudoku second = parse("12.",
+                            "...",
+                            "...");
+      List<Sudoku> expected = first.solve();
+      second.solve();
+      assertSolution(second, parse("123",
+                                   "231",
+                                   "312"),
+                     parse("123",
+                           "312",
+                           "231"));
+      assertThat(first.solve()).isEqualTo(expected).hasSize(3);
+    }
+  }
+
   private void assertSolution(final Sudoku input, final Sudoku... solutions) {
     assertThat(solve(input)).containsExactly(solutions);
   }